@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The mapping rules of a p2 artifacts.xml, resolving an artifact to the path
+ * of its file in the repository, eg. plugins/${id}_${version}.jar
+ *
+ * Filters are matched like p2 writes them, as a conjunction of equalities such
+ * as (&amp; (classifier=osgi.bundle) (format=packed)); the first matching rule
+ * wins.
+ */
+class ArtifactMappings {
+
+	private static final Pattern EQUALITY = Pattern.compile("\\(\\s*([^()&|!=\\s]+)\\s*=([^()]*)\\)");
+	private static final String REPO_URL = "${repoUrl}";
+
+	private static class Rule {
+		private final Map<String, String> filter = new LinkedHashMap<>();
+		private final String output;
+
+		private Rule(String filter, String output) {
+			Matcher matcher = EQUALITY.matcher(filter);
+			while (matcher.find()) {
+				this.filter.put(matcher.group(1), matcher.group(2).trim());
+			}
+			this.output = output;
+		}
+
+		private boolean matches(Map<String, String> artifact) {
+			for (Map.Entry<String, String> equality : this.filter.entrySet()) {
+				if (!equality.getValue().equals(artifact.get(equality.getKey()))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private final List<Rule> rules = new ArrayList<>();
+
+	void addRule(String filter, String output) {
+		if (filter != null && output != null) {
+			this.rules.add(new Rule(filter, output));
+		}
+	}
+
+	/**
+	 * @param artifact classifier, id and version of the artifact, and its
+	 *                 format if any
+	 * @return the path of the artifact relative to the repository, with '/'
+	 *         separators, or null if no rule maps it inside the repository
+	 */
+	String resolve(Map<String, String> artifact) {
+		for (Rule rule : this.rules) {
+			if (rule.matches(artifact)) {
+				if (!rule.output.startsWith(REPO_URL)) {
+					return null;
+				}
+				String res = rule.output.substring(REPO_URL.length());
+				for (String key : new String[] { "id", "version", "classifier" }) {
+					String value = artifact.get(key);
+					if (value != null) {
+						res = res.replace("${" + key + "}", value);
+					}
+				}
+				return res.replaceFirst("^/+", "");
+			}
+		}
+		return null;
+	}
+}
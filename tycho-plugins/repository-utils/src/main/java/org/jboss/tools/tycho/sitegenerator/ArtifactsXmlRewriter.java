@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.function.IOSupplier;
+
+/**
+ * Streams a p2 artifacts.xml through, adding the p2.statsURI repository
+ * property and a download.stats property to every feature artifact. See
+ * http://wiki.eclipse.org/Equinox_p2_download_stats
+ *
+ * Artifacts can also be given extra properties, such as the
+ * download.checksum.* ones, looked up by the path the mapping rules of the
+ * repository give to their file. Existing properties of the same name are
+ * replaced.
+ *
+ * Only the properties of one artifact at a time are held in memory, and the
+ * size attributes of the altered properties elements are updated as they
+ * stream past, so memory use does not depend on the number of artifacts.
+ */
+class ArtifactsXmlRewriter implements MetadataRewriter {
+
+	static final String FEATURE_CLASSIFIER = "org.eclipse.update.feature";
+
+	private final XMLInputFactory inputFactory = P2XmlWriter.newInputFactory();
+	private final String p2StatsUrl;
+	private final Function<String, Map<String, String>> artifactProperties;
+
+	ArtifactsXmlRewriter(String p2StatsUrl) {
+		this(p2StatsUrl, null);
+	}
+
+	/**
+	 * @param p2StatsUrl         URL of the p2 download stats, or null not to
+	 *                           add them
+	 * @param artifactProperties properties to set on the artifact stored in a
+	 *                           path of the repository, or null
+	 */
+	ArtifactsXmlRewriter(String p2StatsUrl, Function<String, Map<String, String>> artifactProperties) {
+		this.p2StatsUrl = p2StatsUrl;
+		this.artifactProperties = artifactProperties;
+	}
+
+	@Override
+	public void rewrite(IOSupplier<InputStream> source, OutputStream out) throws IOException, XMLStreamException {
+		try (InputStream in = source.get(); P2XmlWriter writer = new P2XmlWriter(out)) {
+			XMLStreamReader reader = this.inputFactory.createXMLStreamReader(in);
+			ArtifactMappings mappings = new ArtifactMappings();
+			int depth = 0;
+			// property to add to the repository properties being copied, if any
+			Map<String, String> addedProperty = null;
+			// artifact being copied, until its properties are written
+			Map<String, String> artifact = null;
+			while (true) {
+				int event = reader.getEventType();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if (depth == 3 && artifact != null && "properties".equals(name)) {
+						rewriteProperties(reader, writer, mappings, artifact);
+						artifact = null;
+					} else {
+						if (depth == 2 && "rule".equals(name)) {
+							mappings.addRule(reader.getAttributeValue(null, "filter"),
+									reader.getAttributeValue(null, "output"));
+							writer.copyEvent(reader);
+						} else if (depth == 2 && "artifact".equals(name)) {
+							Map<String, String> attributes = P2XmlWriter.attributes(reader);
+							artifact = isAltered(attributes) ? attributes : null;
+							writer.copyEvent(reader);
+						} else if (depth == 1 && "properties".equals(name) && this.p2StatsUrl != null) {
+							addedProperty = property("p2.statsURI", this.p2StatsUrl);
+							Map<String, String> attributes = P2XmlWriter.attributes(reader);
+							attributes.put("size", Integer.toString(size(attributes) + 1));
+							writer.startElement(name, attributes);
+						} else {
+							writer.copyEvent(reader);
+						}
+						depth++;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+					String name = reader.getLocalName();
+					if ("properties".equals(name) && addedProperty != null) {
+						writer.insertEmptyElement("property", addedProperty);
+						addedProperty = null;
+					} else if (depth == 2 && "artifact".equals(name) && artifact != null) {
+						// artifact without any properties yet
+						Map<String, String> properties = getAddedProperties(mappings, artifact, null);
+						if (!properties.isEmpty()) {
+							Map<String, String> attributes = new LinkedHashMap<>();
+							attributes.put("size", Integer.toString(properties.size()));
+							writer.insertStartElement("properties", attributes);
+							for (Map.Entry<String, String> property : properties.entrySet()) {
+								writer.insertEmptyElement("property", property(property.getKey(), property.getValue()));
+							}
+							writer.insertEndElement("properties");
+						}
+						artifact = null;
+					}
+					writer.copyEvent(reader);
+				} else {
+					writer.copyEvent(reader);
+				}
+				if (!reader.hasNext()) {
+					break;
+				}
+				reader.next();
+			}
+			reader.close();
+		}
+	}
+
+	private boolean isAltered(Map<String, String> artifact) {
+		return this.artifactProperties != null
+				|| (this.p2StatsUrl != null && FEATURE_CLASSIFIER.equals(artifact.get("classifier")));
+	}
+
+	/**
+	 * Reads the properties element the reader is positioned on, and writes it
+	 * with the added properties. Leaves the reader on its end tag.
+	 */
+	private void rewriteProperties(XMLStreamReader reader, P2XmlWriter writer, ArtifactMappings mappings,
+			Map<String, String> artifact) throws IOException, XMLStreamException {
+		Map<String, String> attributes = P2XmlWriter.attributes(reader);
+		Map<String, String> properties = new LinkedHashMap<>();
+		while (reader.next() != XMLStreamConstants.END_ELEMENT || !"properties".equals(reader.getLocalName())) {
+			if (reader.isStartElement() && "property".equals(reader.getLocalName())) {
+				properties.put(reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "value"));
+			}
+		}
+		properties.putAll(getAddedProperties(mappings, artifact, properties.get("format")));
+		attributes.put("size", Integer.toString(properties.size()));
+		writer.startElement("properties", attributes);
+		for (Map.Entry<String, String> property : properties.entrySet()) {
+			writer.insertEmptyElement("property", property(property.getKey(), property.getValue()));
+		}
+		writer.copyEvent(reader);
+	}
+
+	private Map<String, String> getAddedProperties(ArtifactMappings mappings, Map<String, String> artifact,
+			String format) {
+		Map<String, String> res = new LinkedHashMap<>();
+		if (this.p2StatsUrl != null && FEATURE_CLASSIFIER.equals(artifact.get("classifier"))) {
+			res.put("download.stats", artifact.get("id"));
+		}
+		if (this.artifactProperties != null) {
+			Map<String, String> key = new LinkedHashMap<>(artifact);
+			if (format != null) {
+				key.put("format", format);
+			}
+			String path = mappings.resolve(key);
+			Map<String, String> properties = path != null ? this.artifactProperties.apply(path) : null;
+			if (properties != null) {
+				res.putAll(properties);
+			}
+		}
+		return res;
+	}
+
+	private static int size(Map<String, String> attributes) {
+		String size = attributes.get("size");
+		return size == null || size.isEmpty() ? 0 : Integer.parseInt(size);
+	}
+
+	private static Map<String, String> property(String name, String value) {
+		Map<String, String> res = new LinkedHashMap<>();
+		res.put("name", name);
+		res.put("value", value);
+		return res;
+	}
+}
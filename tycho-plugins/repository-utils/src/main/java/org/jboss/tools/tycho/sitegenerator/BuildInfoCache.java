@@ -0,0 +1,301 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+
+/**
+ * On-disk cache of upstream buildinfo.json files. Each response is stored
+ * with its ETag and Last-Modified headers and revalidated with a conditional
+ * GET on the next build; offline, the cached copy is used as is. A response
+ * is handed out as it is downloaded, and copied into the cache meanwhile.
+ *
+ * An entry is a metadata file naming its body file, which has a name of its
+ * own: a new body is written first, then the metadata is replaced by a move,
+ * so that readers always see a consistent entry. Entries not used for longer
+ * than the maximum age are evicted, as are the bodies they no longer name;
+ * those are never removed right away, as the cache may be shared by builds
+ * running concurrently.
+ */
+class BuildInfoCache {
+
+	static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+	private static final String ETAG = "ETag";
+	private static final String LAST_MODIFIED = "Last-Modified";
+	private static final String BODY = "body";
+	private static final String METADATA_SUFFIX = ".properties";
+
+	private final File directory;
+	private final boolean offline;
+	private final long maxAgeMillis;
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger revalidations = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	BuildInfoCache(File directory, boolean offline) {
+		this(directory, offline, DEFAULT_MAX_AGE_MILLIS);
+	}
+
+	/**
+	 * @param maxAgeMillis time after which an entry which was not used is
+	 *                     evicted
+	 */
+	BuildInfoCache(File directory, boolean offline, long maxAgeMillis) {
+		this.directory = directory;
+		this.offline = offline;
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	/**
+	 * @return the content of the given URL, from the cache when it is still
+	 *         current
+	 */
+	InputStream open(URL url, int timeoutMillis) throws IOException {
+		String key = UUID.nameUUIDFromBytes(url.toString().getBytes(StandardCharsets.UTF_8)).toString();
+		File metadata = new File(this.directory, key + METADATA_SUFFIX);
+		Properties cached = metadata.isFile() ? load(metadata) : null;
+		File body = cached != null ? getBody(cached) : null;
+		if (body != null && !body.isFile()) {
+			cached = null;
+			body = null;
+		}
+		if (this.offline) {
+			if (body == null) {
+				throw new FileNotFoundException("No cached copy of " + url + " to use offline");
+			}
+			this.hits.incrementAndGet();
+			return openCached(metadata, body);
+		}
+
+		URLConnection connection = url.openConnection();
+		connection.setConnectTimeout(timeoutMillis);
+		connection.setReadTimeout(timeoutMillis);
+		if (!(connection instanceof HttpURLConnection)) {
+			// nothing to revalidate against, and local anyway
+			return connection.getInputStream();
+		}
+		HttpURLConnection http = (HttpURLConnection) connection;
+		if (cached != null) {
+			if (cached.getProperty(ETAG) != null) {
+				http.setRequestProperty("If-None-Match", cached.getProperty(ETAG));
+			}
+			if (cached.getProperty(LAST_MODIFIED) != null) {
+				http.setRequestProperty("If-Modified-Since", cached.getProperty(LAST_MODIFIED));
+			}
+		}
+		if (cached != null && http.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			http.disconnect();
+			this.revalidations.incrementAndGet();
+			return openCached(metadata, body);
+		}
+		Properties fresh = new Properties();
+		fresh.setProperty("url", url.toString());
+		if (http.getHeaderField(ETAG) != null) {
+			fresh.setProperty(ETAG, http.getHeaderField(ETAG));
+		}
+		if (http.getHeaderField(LAST_MODIFIED) != null) {
+			fresh.setProperty(LAST_MODIFIED, http.getHeaderField(LAST_MODIFIED));
+		}
+		InputStream in = http.getInputStream();
+		try {
+			return new CachingInputStream(in, key, fresh, createTempFile(key));
+		} catch (IOException | RuntimeException ex) {
+			in.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Stream of a response, copied into a temporary file of the cache while it
+	 * is read. The entry is only committed once the response was read to its
+	 * end; a stream closed before, eg. when a lookup is abandoned, leaves the
+	 * cache as it was.
+	 */
+	private class CachingInputStream extends TeeInputStream {
+		private final String key;
+		private final Properties metadata;
+		private final Path tmp;
+		private boolean complete = false;
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		private CachingInputStream(InputStream in, String key, Properties metadata, Path tmp)
+				throws IOException {
+			super(in, Files.newOutputStream(tmp), true);
+			this.key = key;
+			this.metadata = metadata;
+			this.tmp = tmp;
+		}
+
+		@Override
+		protected void afterRead(int n) throws IOException {
+			if (n == IOUtils.EOF) {
+				this.complete = true;
+			}
+			super.afterRead(n);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!this.closed.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				super.close();
+				if (this.complete) {
+					commit(this.key, this.tmp, this.metadata);
+				}
+			} finally {
+				Files.deleteIfExists(this.tmp);
+			}
+		}
+	}
+
+	private File getBody(Properties metadata) {
+		return metadata.getProperty(BODY) != null ? new File(this.directory, metadata.getProperty(BODY)) : null;
+	}
+
+	/**
+	 * Opens the body of an entry, which is marked as used. If another build
+	 * replaced the entry and evicted that body meanwhile, the current body is
+	 * opened instead.
+	 */
+	private InputStream openCached(File metadata, File body) throws IOException {
+		long now = System.currentTimeMillis();
+		metadata.setLastModified(now);
+		body.setLastModified(now);
+		try {
+			return new FileInputStream(body);
+		} catch (FileNotFoundException ex) {
+			File current = metadata.isFile() ? getBody(load(metadata)) : null;
+			if (current == null || current.equals(body)) {
+				throw ex;
+			}
+			return new FileInputStream(current);
+		}
+	}
+
+	private Path createTempFile(String key) throws IOException {
+		this.directory.mkdirs();
+		return Files.createTempFile(this.directory.toPath(), key, ".json.tmp");
+	}
+
+	/**
+	 * Moves a completely read body into place, then replaces the metadata
+	 * naming it. The previous body is left to {@link #evict()}, as other
+	 * builds sharing the cache may still be about to read it.
+	 */
+	private void commit(String key, Path tmp, Properties metadata) throws IOException {
+		File body = new File(this.directory, key + "-" + UUID.randomUUID() + ".json");
+		Files.move(tmp, body.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		metadata.setProperty(BODY, body.getName());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		metadata.store(out, null);
+		try {
+			store(new ByteArrayInputStream(out.toByteArray()), new File(this.directory, key + METADATA_SUFFIX));
+		} catch (IOException ex) {
+			body.delete();
+			throw ex;
+		}
+		this.misses.incrementAndGet();
+	}
+
+	/**
+	 * Removes the entries which were not used for longer than the maximum age,
+	 * and the files no entry refers to which are as old.
+	 *
+	 * @return the number of removed files
+	 */
+	int evict() throws IOException {
+		File[] files = this.directory.listFiles();
+		if (files == null) {
+			return 0;
+		}
+		long oldest = System.currentTimeMillis() - this.maxAgeMillis;
+		int res = 0;
+		Set<String> referenced = new HashSet<>();
+		for (File file : files) {
+			if (!file.getName().endsWith(METADATA_SUFFIX)) {
+				continue;
+			}
+			if (file.lastModified() < oldest) {
+				if (file.delete()) {
+					res++;
+				}
+			} else {
+				String body = load(file).getProperty(BODY);
+				if (body != null) {
+					referenced.add(body);
+				}
+			}
+		}
+		for (File file : files) {
+			if (!file.getName().endsWith(METADATA_SUFFIX) && !referenced.contains(file.getName())
+					&& file.isFile() && file.lastModified() < oldest && file.delete()) {
+				res++;
+			}
+		}
+		return res;
+	}
+
+	private static Properties load(File metadata) throws IOException {
+		Properties res = new Properties();
+		try (InputStream in = new FileInputStream(metadata)) {
+			res.load(in);
+		}
+		return res;
+	}
+
+	private void store(InputStream in, File target) throws IOException {
+		Path tmp = Files.createTempFile(this.directory.toPath(), target.getName(), ".tmp");
+		try {
+			Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	int getHits() {
+		return this.hits.get();
+	}
+
+	int getRevalidations() {
+		return this.revalidations.get();
+	}
+
+	int getMisses() {
+		return this.misses.get();
+	}
+}
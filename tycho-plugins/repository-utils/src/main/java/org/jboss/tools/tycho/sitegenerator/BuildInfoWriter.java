@@ -0,0 +1,465 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.commons.io.function.IOSupplier;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
+import org.jboss.tools.tycho.sitegenerator.JsonTokenizer.Token;
+
+/**
+ * Streaming JSON writer producing the same text as
+ * {@link ModelNode#toJSONString(boolean) toJSONString(false)}, so that
+ * buildinfo.json can be written without first building the whole document,
+ * upstream documents included, in memory.
+ *
+ * Like ModelNode, objects and lists are only spread over several lines when
+ * they have more than one entry, so the size of a container must be given
+ * when it is started.
+ */
+class BuildInfoWriter {
+
+	private static final String INDENT = "    ";
+
+	private static class Container {
+		private final boolean object;
+		private final int indent;
+		private final boolean multiLine;
+		private int count = 0;
+
+		private Container(boolean object, int indent, boolean multiLine) {
+			this.object = object;
+			this.indent = indent;
+			this.multiLine = multiLine;
+		}
+
+		private int childIndent() {
+			return this.multiLine ? this.indent + 1 : this.indent;
+		}
+	}
+
+	private final Writer out;
+	private final int baseIndent;
+	private final Deque<Container> containers = new ArrayDeque<>();
+	private boolean afterName = false;
+
+	BuildInfoWriter(Writer out) {
+		this(out, 0);
+	}
+
+	private BuildInfoWriter(Writer out, int baseIndent) {
+		this.out = out;
+		this.baseIndent = baseIndent;
+	}
+
+	void beginObject(int size) throws IOException {
+		begin(true, size);
+	}
+
+	void beginArray(int size) throws IOException {
+		begin(false, size);
+	}
+
+	private void begin(boolean object, int size) throws IOException {
+		int indent = this.containers.isEmpty() ? this.baseIndent : this.containers.peek().childIndent();
+		beforeValue();
+		this.out.write(object ? '{' : '[');
+		Container container = new Container(object, indent, size > 1);
+		if (container.multiLine) {
+			newLine(indent + 1);
+		}
+		this.containers.push(container);
+	}
+
+	void endObject() throws IOException {
+		end('}');
+	}
+
+	void endArray() throws IOException {
+		end(']');
+	}
+
+	private void end(char c) throws IOException {
+		Container container = this.containers.pop();
+		if (container.multiLine) {
+			newLine(container.indent);
+		}
+		this.out.write(c);
+	}
+
+	void name(String name) throws IOException {
+		separator();
+		quoted(name);
+		this.out.write(" : ");
+		this.afterName = true;
+	}
+
+	void string(String value) throws IOException {
+		beforeValue();
+		quoted(value);
+	}
+
+	private void quoted(String value) throws IOException {
+		this.out.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				this.out.write("\\\"");
+				break;
+			case '\\':
+				this.out.write("\\\\");
+				break;
+			case '\b':
+				this.out.write("\\b");
+				break;
+			case '\f':
+				this.out.write("\\f");
+				break;
+			case '\n':
+				this.out.write("\\n");
+				break;
+			case '\r':
+				this.out.write("\\r");
+				break;
+			case '\t':
+				this.out.write("\\t");
+				break;
+			default:
+				if (c < ' ') {
+					this.out.write(String.format("\\u%04X", (int) c));
+				} else {
+					this.out.write(c);
+				}
+			}
+		}
+		this.out.write('"');
+	}
+
+	/**
+	 * Writes a number, true, false or null as is.
+	 */
+	void literal(String value) throws IOException {
+		beforeValue();
+		this.out.write(value);
+	}
+
+	/**
+	 * Writes a whole node, as ModelNode would.
+	 */
+	void value(ModelNode node) throws IOException {
+		switch (node.getType()) {
+		case OBJECT:
+			List<Property> properties = node.asPropertyList();
+			beginObject(properties.size());
+			for (Property property : properties) {
+				name(property.getName());
+				value(property.getValue());
+			}
+			endObject();
+			break;
+		case PROPERTY:
+			beginObject(1);
+			name(node.asProperty().getName());
+			value(node.asProperty().getValue());
+			endObject();
+			break;
+		case LIST:
+			List<ModelNode> list = node.asList();
+			beginArray(list.size());
+			for (ModelNode element : list) {
+				value(element);
+			}
+			endArray();
+			break;
+		case UNDEFINED:
+			literal("null");
+			break;
+		case STRING:
+			string(node.asString());
+			break;
+		default:
+			literal(node.asString());
+		}
+	}
+
+	/**
+	 * What {@link BuildInfoWriter#measure(IOSupplier, JsonProjection)} found
+	 * of the projection of a JSON document: the number of entries kept in each
+	 * of its objects and arrays, and the number of bytes it takes.
+	 */
+	static class Measure {
+		private final JsonProjection projection;
+		private final List<int[]> sizes;
+		private final long bytes;
+		private final long newLines;
+
+		private Measure(JsonProjection projection, List<int[]> sizes, long[] length) {
+			this.projection = projection;
+			this.sizes = sizes;
+			this.bytes = length[0];
+			this.newLines = length[1];
+		}
+	}
+
+	/**
+	 * Copies the projection of a JSON document. The document is read twice:
+	 * once to measure its objects and arrays, once to write them.
+	 *
+	 * @throws IOException
+	 *             also when the document is not a JSON object, in which case
+	 *             nothing was written
+	 */
+	void copy(IOSupplier<Reader> source, JsonProjection projection) throws IOException {
+		copy(source, measure(source, projection));
+	}
+
+	/**
+	 * Copies the projection of a JSON document measured beforehand, reading it
+	 * once more.
+	 */
+	void copy(IOSupplier<Reader> source, Measure measure) throws IOException {
+		try (Reader in = source.get()) {
+			JsonTokenizer json = new JsonTokenizer(in);
+			json.next();
+			beginObject(measure.sizes.get(0)[0]);
+			write(json, measure.sizes, new int[] { 1 }, true, measure.projection);
+		}
+	}
+
+	/**
+	 * Reads a JSON document to size the objects and arrays of its projection.
+	 *
+	 * @throws IOException
+	 *             also when the document is not a JSON object
+	 */
+	static Measure measure(IOSupplier<Reader> source, JsonProjection projection) throws IOException {
+		List<int[]> sizes = new ArrayList<>();
+		long[] length = new long[2];
+		try (Reader in = source.get()) {
+			JsonTokenizer json = new JsonTokenizer(in);
+			if (json.next() != Token.BEGIN_OBJECT) {
+				throw new IOException("Not a JSON object");
+			}
+			sizes.add(new int[2]);
+			measure(json, sizes, 0, projection, length);
+		}
+		return new Measure(projection, sizes, length);
+	}
+
+	/**
+	 * @return the number of UTF-8 bytes {@link #copy(IOSupplier, Measure)}
+	 *         would write at the current position
+	 */
+	long sizeOfCopy(Measure measure) {
+		int indent = this.containers.isEmpty() ? this.baseIndent : this.containers.peek().childIndent();
+		return measure.bytes + measure.newLines * indent * INDENT.length();
+	}
+
+	/*
+	 * Records, in document order, the number of entries kept in each object or
+	 * array, and the number of objects and arrays nested in it; returns the
+	 * number of entries kept. The length of the container as written is set
+	 * in length: its bytes at indent 0, and its new lines, which each take
+	 * one more INDENT per level of indent
+	 */
+	private static int measure(JsonTokenizer json, List<int[]> sizes, int index, JsonProjection projection,
+			long[] length) throws IOException {
+		int size = 0;
+		long entriesBytes = 0;
+		long childrenNewLines = 0;
+		Token token;
+		while ((token = json.next()) != Token.END_OBJECT && token != Token.END_ARRAY) {
+			if (token == Token.END_DOCUMENT) {
+				throw new IOException("Truncated JSON document");
+			}
+			JsonProjection value = projection;
+			long nameBytes = 0;
+			if (token == Token.NAME) {
+				value = projection.field(json.getText());
+				if (value == null) {
+					json.skipValue();
+					continue;
+				}
+				nameBytes = quotedBytes(json.getText()) + " : ".length();
+				token = json.next();
+			}
+			if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) {
+				int child = sizes.size();
+				sizes.add(new int[2]);
+				long[] childLength = new long[2];
+				int kept = measure(json, sizes, child, value, childLength);
+				if (isKept(value, kept)) {
+					size++;
+					entriesBytes += nameBytes + childLength[0];
+					childrenNewLines += childLength[1];
+				} else {
+					sizes.get(child)[0] = -1;
+				}
+			} else if (value.isAll()) {
+				size++;
+				entriesBytes += nameBytes
+						+ (token == Token.STRING ? quotedBytes(json.getText()) : utf8Bytes(json.getText()));
+			}
+		}
+		sizes.set(index, new int[] { size, sizes.size() - index - 1 });
+		// brackets, and as written by begin, separator and end when spread over several lines:
+		// entries one level deeper, a new line after the opening bracket, ",\n" between them and
+		// a new line before the closing bracket
+		length[0] = 2 + entriesBytes;
+		length[1] = childrenNewLines;
+		if (size > 1) {
+			length[0] += childrenNewLines * INDENT.length() + (1 + INDENT.length())
+					+ (size - 1) * (2 + INDENT.length()) + 1;
+			length[1] += size + 1;
+		}
+		return size;
+	}
+
+	/*
+	 * as written by quoted
+	 */
+	private static long quotedBytes(String value) {
+		long res = 2;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+			case '\\':
+			case '\b':
+			case '\f':
+			case '\n':
+			case '\r':
+			case '\t':
+				res += 2;
+				break;
+			default:
+				res += c < ' ' ? 6 : utf8Bytes(c);
+			}
+		}
+		return res;
+	}
+
+	private static long utf8Bytes(String value) {
+		long res = 0;
+		for (int i = 0; i < value.length(); i++) {
+			res += utf8Bytes(value.charAt(i));
+		}
+		return res;
+	}
+
+	/*
+	 * a surrogate pair takes 4 bytes
+	 */
+	private static int utf8Bytes(char c) {
+		if (c < 0x80) {
+			return 1;
+		} else if (c < 0x800 || Character.isSurrogate(c)) {
+			return 2;
+		}
+		return 3;
+	}
+
+	private void write(JsonTokenizer json, List<int[]> sizes, int[] next, boolean object, JsonProjection projection)
+			throws IOException {
+		Token token;
+		while ((token = json.next()) != Token.END_OBJECT && token != Token.END_ARRAY) {
+			JsonProjection value = projection;
+			String name = null;
+			if (token == Token.NAME) {
+				name = json.getText();
+				value = projection.field(name);
+				if (value == null) {
+					json.skipValue();
+					continue;
+				}
+				token = json.next();
+			}
+			if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) {
+				int[] size = sizes.get(next[0]++);
+				if (size[0] < 0) {
+					json.skipContainer();
+					next[0] += size[1];
+					continue;
+				}
+				if (name != null) {
+					name(name);
+				}
+				if (token == Token.BEGIN_OBJECT) {
+					beginObject(size[0]);
+				} else {
+					beginArray(size[0]);
+				}
+				write(json, sizes, next, token == Token.BEGIN_OBJECT, value);
+			} else if (value.isAll()) {
+				if (name != null) {
+					name(name);
+				}
+				if (token == Token.STRING) {
+					string(json.getText());
+				} else {
+					literal(json.getText());
+				}
+			}
+		}
+		if (object) {
+			endObject();
+		} else {
+			endArray();
+		}
+	}
+
+	/*
+	 * objects only holding selected fields are left out when none of them is
+	 * there; objects and arrays kept whole always are
+	 */
+	private static boolean isKept(JsonProjection projection, int kept) {
+		return projection.isAll() || kept > 0;
+	}
+
+	private void beforeValue() throws IOException {
+		if (this.afterName) {
+			this.afterName = false;
+		} else {
+			separator();
+		}
+	}
+
+	private void separator() throws IOException {
+		Container container = this.containers.peek();
+		if (container == null) {
+			return;
+		}
+		if (container.count++ > 0) {
+			if (container.multiLine) {
+				this.out.write(',');
+				newLine(container.indent + 1);
+			} else {
+				this.out.write(container.object ? ", " : ",");
+			}
+		}
+	}
+
+	private void newLine(int indent) throws IOException {
+		this.out.write('\n');
+		for (int i = 0; i < indent; i++) {
+			this.out.write(INDENT);
+		}
+	}
+}
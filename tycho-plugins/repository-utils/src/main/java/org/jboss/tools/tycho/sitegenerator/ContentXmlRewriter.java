@@ -0,0 +1,255 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.function.IOSupplier;
+
+/**
+ * Streams a p2 content.xml through, replacing its repository references by
+ * the associate sites and dropping the units matched by any of the
+ * {@link UnitFilter}s, eg. the default "Uncategorized" category units.
+ *
+ * The units size attribute comes before the units, and the output cannot be
+ * patched afterwards, so filters are evaluated in a first pass which only
+ * keeps the keys of the removed units; the second pass copies everything else.
+ * When a filter needs categories, an extra pass collects which units each
+ * category lists, as categories may come after their units. Memory use depends
+ * on the number of removed and categorized units, not on the total.
+ */
+class ContentXmlRewriter implements MetadataRewriter {
+
+	private final XMLInputFactory inputFactory = P2XmlWriter.newInputFactory();
+	private final List<String> associateSites;
+	private final boolean embedReferences;
+	private final List<UnitFilter> unitFilters;
+	private Set<String> removedUnits = Collections.emptySet();
+
+	/**
+	 * @param associateSites        sites to reference from the repository; if
+	 *                              null, existing references are kept as is
+	 * @param embedReferences       whether to add the associate sites as
+	 *                              references, or only remove existing ones
+	 * @param removeDefaultCategory whether to drop the ".Default" category units
+	 */
+	ContentXmlRewriter(List<String> associateSites, boolean embedReferences, boolean removeDefaultCategory) {
+		this(associateSites, embedReferences,
+				removeDefaultCategory ? Collections.singletonList(UnitFilter.defaultCategory())
+						: Collections.emptyList());
+	}
+
+	/**
+	 * @param associateSites  sites to reference from the repository; if null,
+	 *                        existing references are kept as is
+	 * @param embedReferences whether to add the associate sites as references,
+	 *                        or only remove existing ones
+	 * @param unitFilters     units matched by any of these are removed
+	 */
+	ContentXmlRewriter(List<String> associateSites, boolean embedReferences, List<UnitFilter> unitFilters) {
+		this.associateSites = associateSites;
+		this.embedReferences = embedReferences;
+		this.unitFilters = unitFilters;
+	}
+
+	/**
+	 * @return the "id/version" of the units removed by the last rewrite
+	 */
+	Set<String> getRemovedUnits() {
+		return this.removedUnits;
+	}
+
+	@Override
+	public void rewrite(IOSupplier<InputStream> source, OutputStream out) throws IOException, XMLStreamException {
+		// the size attribute comes before the units, so filter them first
+		int unitsSize = this.unitFilters.isEmpty() ? -1 : selectRemovedUnits(source);
+		try (InputStream in = source.get(); P2XmlWriter writer = new P2XmlWriter(out)) {
+			XMLStreamReader reader = this.inputFactory.createXMLStreamReader(in);
+			int depth = 0;
+			String section = null;
+			while (true) {
+				int event = reader.getEventType();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if (depth == 1 && "references".equals(name) && this.associateSites != null) {
+						// remove default references
+						writer.skipElement(reader);
+					} else if (depth == 2 && "units".equals(section) && "unit".equals(name)
+							&& this.removedUnits.contains(unitKey(reader.getAttributeValue(null, "id"),
+									reader.getAttributeValue(null, "version")))) {
+						writer.skipElement(reader);
+					} else {
+						if (depth == 1) {
+							section = name;
+						}
+						if (depth == 1 && "units".equals(name) && unitsSize >= 0) {
+							Map<String, String> attributes = P2XmlWriter.attributes(reader);
+							attributes.put("size", Integer.toString(unitsSize));
+							writer.startElement(name, attributes);
+						} else {
+							writer.copyEvent(reader);
+						}
+						depth++;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+					if (depth == 0) {
+						writeAssociateSites(writer);
+					}
+					writer.copyEvent(reader);
+				} else {
+					writer.copyEvent(reader);
+				}
+				if (!reader.hasNext()) {
+					break;
+				}
+				reader.next();
+			}
+			reader.close();
+		}
+	}
+
+	private void writeAssociateSites(P2XmlWriter writer) throws IOException {
+		if (this.associateSites == null || this.associateSites.isEmpty() || !this.embedReferences) {
+			return;
+		}
+		Map<String, String> referencesAttributes = new LinkedHashMap<>();
+		referencesAttributes.put("size", Integer.toString(2 * this.associateSites.size()));
+		writer.insertStartElement("references", referencesAttributes);
+		for (String associate : this.associateSites) {
+			for (String type : new String[] { "0", "1" }) {
+				Map<String, String> repository = new LinkedHashMap<>();
+				repository.put("uri", associate);
+				repository.put("url", associate);
+				repository.put("type", type);
+				repository.put("options", "1");
+				writer.insertEmptyElement("repository", repository);
+			}
+		}
+		writer.insertEndElement("references");
+	}
+
+	private static String unitKey(String id, String version) {
+		return id + '/' + version;
+	}
+
+	/**
+	 * What the filters look at in a unit.
+	 */
+	private static class Unit {
+		private String id;
+		private String version;
+		private final Map<String, String> properties = new HashMap<>();
+		private final List<String> requiredUnits = new ArrayList<>();
+	}
+
+	private interface UnitHandler {
+		void unit(Unit unit);
+	}
+
+	/**
+	 * Evaluates the filters on every unit.
+	 *
+	 * @return the number of kept units
+	 */
+	private int selectRemovedUnits(IOSupplier<InputStream> source) throws IOException, XMLStreamException {
+		Map<String, Set<String>> categories = new HashMap<>();
+		if (this.unitFilters.stream().anyMatch(UnitFilter::needsCategories)) {
+			readUnits(source, unit -> {
+				if (!"true".equals(unit.properties.get(UnitFilter.CATEGORY_PROPERTY))) {
+					return;
+				}
+				for (String member : unit.requiredUnits) {
+					Set<String> labels = categories.computeIfAbsent(member, key -> new HashSet<>());
+					labels.add(unit.id);
+					if (unit.properties.containsKey(UnitFilter.NAME_PROPERTY)) {
+						labels.add(unit.properties.get(UnitFilter.NAME_PROPERTY));
+					}
+				}
+			});
+		}
+		Set<String> removed = new HashSet<>();
+		int[] kept = { 0 };
+		readUnits(source, unit -> {
+			Set<String> labels = categories.getOrDefault(unit.id, Collections.emptySet());
+			if (this.unitFilters.stream().anyMatch(filter -> filter.matches(unit.id, unit.properties, labels))) {
+				removed.add(unitKey(unit.id, unit.version));
+			} else {
+				kept[0]++;
+			}
+		});
+		this.removedUnits = removed;
+		return kept[0];
+	}
+
+	/**
+	 * Streams the units of content.xml, handing each one to the handler once
+	 * it was read.
+	 */
+	private void readUnits(IOSupplier<InputStream> source, UnitHandler handler)
+			throws IOException, XMLStreamException {
+		try (InputStream in = source.get()) {
+			XMLStreamReader reader = this.inputFactory.createXMLStreamReader(in);
+			int depth = 0;
+			String section = null;
+			String unitSection = null;
+			Unit unit = null;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if (depth == 1) {
+						section = name;
+					} else if (depth == 2 && "units".equals(section) && "unit".equals(name)) {
+						unit = new Unit();
+						unit.id = reader.getAttributeValue(null, "id");
+						unit.version = reader.getAttributeValue(null, "version");
+					} else if (depth == 3 && unit != null) {
+						unitSection = name;
+					} else if (depth == 4 && unit != null) {
+						if ("properties".equals(unitSection) && "property".equals(name)) {
+							unit.properties.put(reader.getAttributeValue(null, "name"),
+									reader.getAttributeValue(null, "value"));
+						} else if ("requires".equals(unitSection) && "required".equals(name)
+								&& "org.eclipse.equinox.p2.iu".equals(reader.getAttributeValue(null, "namespace"))) {
+							unit.requiredUnits.add(reader.getAttributeValue(null, "name"));
+						}
+					}
+					depth++;
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+					if (depth == 3) {
+						unitSection = null;
+					} else if (depth == 2 && unit != null) {
+						handler.unit(unit);
+						unit = null;
+					}
+				}
+			}
+			reader.close();
+		}
+	}
+}
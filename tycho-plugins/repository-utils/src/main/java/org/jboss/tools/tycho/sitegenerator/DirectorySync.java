@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Copies a file or a folder tree into the build directory, skipping the files
+ * which are already there, possibly as hard links to the source files instead
+ * of copies, with several threads.
+ *
+ * Copies keep the modification time of their source, so that an unchanged
+ * file is found up to date by its size and time on the next build. Files
+ * linked to their source must then only be replaced, never written in place,
+ * as {@link ReplacingOutputStream} does.
+ */
+class DirectorySync {
+
+	/**
+	 * How to tell that a file of the target is up to date
+	 */
+	enum Check {
+		/** never, copy every file again */
+		always,
+		/** same size and modification time as the source */
+		sizeAndTime,
+		/** same size and SHA-256 as the source */
+		content
+	}
+
+	/**
+	 * Counts of what a sync did.
+	 */
+	static class Result {
+		private final AtomicInteger copied = new AtomicInteger();
+		private final AtomicInteger linked = new AtomicInteger();
+		private final AtomicInteger skipped = new AtomicInteger();
+
+		int getCopied() {
+			return this.copied.get();
+		}
+
+		int getLinked() {
+			return this.linked.get();
+		}
+
+		int getSkipped() {
+			return this.skipped.get();
+		}
+
+		@Override
+		public String toString() {
+			return getCopied() + " copied, " + getLinked() + " linked, " + getSkipped() + " up to date";
+		}
+	}
+
+	private final Check check;
+	private final boolean hardLinks;
+	private final int threads;
+
+	/**
+	 * @param check     how to find files already up to date
+	 * @param hardLinks whether to link files to their source instead of copying
+	 *                  them, when both are on the same file system
+	 * @param threads   number of threads copying files
+	 */
+	DirectorySync(Check check, boolean hardLinks, int threads) {
+		this.check = check;
+		this.hardLinks = hardLinks;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Copies source into target: the files under source into the target
+	 * folder if source is a folder, source as target otherwise.
+	 */
+	Result sync(Path source, Path target) throws IOException {
+		Result res = new Result();
+		if (!Files.isDirectory(source)) {
+			syncFile(source, target, res);
+			return res;
+		}
+		List<Path> files;
+		try (Stream<Path> paths = Files.walk(source)) {
+			files = paths.sorted().collect(Collectors.toList());
+		}
+		List<Path[]> copies = new ArrayList<>();
+		for (Path file : files) {
+			Path targetFile = target.resolve(source.relativize(file).toString());
+			if (Files.isDirectory(file)) {
+				Files.createDirectories(targetFile);
+			} else {
+				copies.add(new Path[] { file, targetFile });
+			}
+		}
+		if (this.threads == 1 || copies.size() < 2) {
+			for (Path[] copy : copies) {
+				syncFile(copy[0], copy[1], res);
+			}
+			return res;
+		}
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+			Thread thread = new Thread(runnable, "directory-sync-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		// copying threads report their I/O to the step of the caller
+		PhaseMetrics.Step step = PhaseMetrics.current();
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (Path[] copy : copies) {
+				futures.add(executor.submit(() -> {
+					syncFile(copy[0], copy[1], res, step);
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while copying " + source);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			}
+			throw new IOException("Could not copy " + source, ex.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return res;
+	}
+
+	private void syncFile(Path source, Path target, Result res) throws IOException {
+		syncFile(source, target, res, PhaseMetrics.current());
+	}
+
+	private void syncFile(Path source, Path target, Result res, PhaseMetrics.Step step) throws IOException {
+		if (isUpToDate(source, target, step)) {
+			res.skipped.incrementAndGet();
+			return;
+		}
+		if (target.getParent() != null) {
+			Files.createDirectories(target.getParent());
+		}
+		if (this.hardLinks) {
+			try {
+				Files.deleteIfExists(target);
+				Files.createLink(target, source);
+				res.linked.incrementAndGet();
+				return;
+			} catch (UnsupportedOperationException | FileSystemException ex) {
+				// eg. another file system, fall back to a copy
+			}
+		}
+		Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+		long size = Files.size(target);
+		step.read(size);
+		step.written(size);
+		res.copied.incrementAndGet();
+	}
+
+	private boolean isUpToDate(Path source, Path target, PhaseMetrics.Step step) throws IOException {
+		if (this.check == Check.always || !Files.isRegularFile(target)) {
+			return false;
+		}
+		if (Files.isSameFile(source, target)) {
+			// already linked
+			return true;
+		}
+		if (Files.size(source) != Files.size(target)) {
+			return false;
+		}
+		if (this.check == Check.sizeAndTime) {
+			// copies do not always keep the sub-millisecond part
+			return Files.getLastModifiedTime(source).toMillis() == Files.getLastModifiedTime(target).toMillis();
+		}
+		MessageDigest sourceDigest = RepositoryChecksums.newDigest(RepositoryChecksums.SHA_256);
+		MessageDigest targetDigest = RepositoryChecksums.newDigest(RepositoryChecksums.SHA_256);
+		step.read(RepositoryChecksums.update(source, sourceDigest));
+		step.read(RepositoryChecksums.update(target, targetDigest));
+		return Arrays.equals(sourceDigest.digest(), targetDigest.digest());
+	}
+}
@@ -11,7 +11,8 @@
  ******************************************************************************/
 package org.jboss.tools.tycho.sitegenerator;
 
-import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -19,38 +20,56 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
 
 import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.function.IOSupplier;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
@@ -59,12 +78,7 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.codehaus.plexus.archiver.zip.ZipArchiver;
 import org.codehaus.plexus.util.FileUtils;
-import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.io.RawInputStreamFacade;
-import org.eclipse.jgit.lib.Constants;
-import org.eclipse.jgit.lib.Ref;
-import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.tycho.PackagingType;
 import org.eclipse.tycho.ReactorProject;
 import org.eclipse.tycho.core.ArtifactDependencyVisitor;
@@ -79,12 +93,7 @@ import org.eclipse.tycho.packaging.AbstractTychoPackagingMojo;
 import org.eclipse.tycho.packaging.UpdateSiteAssembler;
 import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.Property;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import org.jboss.tools.tycho.sitegenerator.PhaseFingerprints.Fingerprint;
 
 /**
  * Generates a JBoss-friendly facade and files for this p2 repo
@@ -125,6 +134,8 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 
 	private static final String UPSTREAM_ELEMENT = "upstream";
 	public static final String BUILDINFO_JSON = "buildinfo.json";
+	private static final String BUILDINFO_GRAPH_JSON = "buildinfo-graph.json";
+	private static final String FEATURES_JSON = "features.json";
 
 	/**
 	 * Additional symbols, to replace in files
@@ -145,6 +156,30 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 	@Parameter
 	private List<File> additionalWebResources;
 
+	/**
+	 * How to tell that a file of siteTemplateFolder or additionalWebResources
+	 * was already copied to the repository by a previous build, so that it is
+	 * not copied again: "sizeAndTime" (default), "content" to compare their
+	 * SHA-256, or "always" to copy all files again
+	 */
+	@Parameter(defaultValue = "sizeAndTime")
+	private DirectorySync.Check webResourcesCheck;
+
+	/**
+	 * Whether to hard link the files of siteTemplateFolder and
+	 * additionalWebResources into the repository instead of copying them,
+	 * when both are on the same file system. Saves the copy of large assets
+	 * like screenshots and videos.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean linkWebResources;
+
+	/**
+	 * Number of threads copying siteTemplateFolder and additionalWebResources
+	 */
+	@Parameter(defaultValue = "4")
+	private int webResourcesThreads;
+
 	/**
 	 * Additional sites to add to repo associateSites
 	 */
@@ -182,12 +217,47 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 	@Parameter(defaultValue = "site.css")
 	private String cssName;
 
+	/**
+	 * XSLT stylesheet turning category.xml into the ${site.contents} HTML
+	 * table; if not set, the built-in /xslt/site.xsl is used. Compiled
+	 * stylesheets are cached for the whole Maven session.
+	 */
+	@Parameter
+	private File siteXsl;
+
+	/**
+	 * Whether to list the features of the site in a compact features.json,
+	 * grouped by category, which index.html loads once shown and then filters
+	 * and paginates in the browser, instead of inlining a table of all
+	 * features. For aggregate sites with thousands of features, index.html then
+	 * keeps the same small size. ${site.contents} is rendered with the
+	 * built-in /xslt/site-index.xsl unless siteXsl is set.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean featureIndex;
+
+	/**
+	 * XSLT stylesheet turning category.xml into site.properties; if not set,
+	 * the built-in /xslt/site.properties.xsl is used
+	 */
+	@Parameter
+	private File sitePropertiesXsl;
+
 	/**
 	 * Whether to remove or not the "Uncategorized" default category
 	 */
 	@Parameter(defaultValue = "false")
 	private boolean removeDefaultCategory;
 
+	/**
+	 * Units to remove from content.xml, eg. to trim an aggregate repository
+	 * for an audience: a unit is removed when any filter matches it. Filters
+	 * match the unit id, a property value, or the categories listing the unit.
+	 * See {@link UnitFilter}
+	 */
+	@Parameter
+	private List<UnitFilter> unitFilters;
+
 	@Component(role = TychoProject.class)
 	private Map<String, TychoProject> projectTypes;
 
@@ -218,10 +288,186 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 	@Parameter(defaultValue = "latest/all/repo")
 	private String fallbackToChild;
 
+	/**
+	 * Number of upstream buildinfo.json files read concurrently
+	 */
+	@Parameter(defaultValue = "8")
+	private int upstreamBuildInfoThreads;
+
+	/**
+	 * Connect and read timeout, in milliseconds, of each upstream buildinfo.json
+	 * lookup
+	 */
+	@Parameter(defaultValue = "30000")
+	private int upstreamBuildInfoTimeout;
+
+	/**
+	 * Time, in milliseconds, after which upstream buildinfo.json lookups still
+	 * running are given up, all repositories together
+	 */
+	@Parameter(defaultValue = "120000")
+	private long upstreamBuildInfoDeadline;
+
+	/**
+	 * Whether to keep upstream buildinfo.json files in a cache under the local
+	 * Maven repository, revalidated with conditional GETs. When Maven runs
+	 * offline, cached files are used without any network access.
+	 */
+	@Parameter(defaultValue = "true")
+	private boolean upstreamBuildInfoCache;
+
+	/**
+	 * Number of days after which an upstream buildinfo.json file which no
+	 * build used is evicted from the cache
+	 */
+	@Parameter(defaultValue = "30")
+	private int upstreamBuildInfoCacheMaxAge;
+
+	/**
+	 * Fields of the upstream buildinfo.json files to keep in the generated one,
+	 * as dot separated paths such as revision.HEAD, revision.knownReferences,
+	 * properties.BUILD_ALIAS or timestamp. By default, everything but their own
+	 * upstream element is kept.
+	 */
+	@Parameter
+	private List<String> upstreamBuildInfoFields;
+
+	/**
+	 * Size budget, in bytes, of the generated buildinfo.json: upstream build
+	 * info which would not fit any more is left out. 0 for no limit.
+	 */
+	@Parameter(defaultValue = "0")
+	private long buildInfoMaxBytes;
+
+	/**
+	 * Number of levels of upstream builds to record in buildinfo-graph.json,
+	 * next to buildinfo.json: 1 for the direct upstream builds, 2 for theirs
+	 * too, and so on. Each build is recorded once, keyed by project and HEAD.
+	 * 0 to not generate buildinfo-graph.json.
+	 */
+	@Parameter(defaultValue = "0")
+	private int upstreamBuildInfoGraphDepth;
+
 	@Parameter
 	private Set<String> systemProperties;
 
+	/**
+	 * Number of threads used to compress content.xml.xz and artifacts.xml.xz.
+	 * With more than 1 thread, metadata is split in blocks of
+	 * ${xzBlockSizeMB} that are compressed in parallel and written as
+	 * concatenated .xz streams, which p2 reads like a single one.
+	 */
+	@Parameter(defaultValue = "1")
+	private int xzThreads;
+
+	/**
+	 * XZ compression preset for the .xml.xz metadata, from 0 (fastest) to 9
+	 * (smallest)
+	 */
+	@Parameter(defaultValue = "6")
+	private int xzPreset;
+
+	/**
+	 * Size in MB of the blocks compressed in parallel when xzThreads is more
+	 * than 1. Each thread needs about 10 times this much heap.
+	 */
+	@Parameter(defaultValue = "4")
+	private int xzBlockSizeMB;
+
+	/**
+	 * Whether to store already compressed files (jars, .xz, images...) as is
+	 * in the repository zip instead of deflating them again. Only text files
+	 * like html, css, xml or json are deflated then.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean storeCompressedZipEntries;
+
+	/**
+	 * Extensions of the files stored without compression in the repository
+	 * zip when storeCompressedZipEntries is set. Defaults to jar, zip, xz, gz,
+	 * bz2, png, jpg, jpeg, gif, webp, mp4 and webm.
+	 */
+	@Parameter
+	private List<String> storedZipEntryExtensions;
+
+	/**
+	 * Number of threads compressing the entries of the repository zip. With
+	 * more than 1 thread, entries are compressed in parallel into temporary
+	 * scatter files which are then merged into the zip.
+	 */
+	@Parameter(defaultValue = "1")
+	private int zipThreads;
+
+	/**
+	 * Number of threads running the phases of this mojo. With more than 1
+	 * thread, independent phases (web content, content.jar and artifacts.jar
+	 * rewrites, composite references, buildinfo with its upstream fetches) run
+	 * concurrently; the zip is always created last.
+	 */
+	@Parameter(defaultValue = "1")
+	private int phaseThreads;
+
+	/**
+	 * Whether to skip the phases whose inputs (category.xml, templates,
+	 * stylesheets, symbols, configuration, the metadata and features of the
+	 * repository) and outputs did not change since the last build, keeping
+	 * their previous outputs. Fingerprints are recorded in
+	 * target/facade-fingerprints/. Upstream build info is not looked up again
+	 * as long as the upstream repositories and the Git HEAD are the same.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean incremental;
+
+	/**
+	 * Whether to compute the SHA-256 and SHA-512 digests of every file of the
+	 * repository. They are written to SHA256SUMS and SHA512SUMS at the root of
+	 * the repository, and the ones of plugins, features and binaries to their
+	 * download.checksum.sha-256 and download.checksum.sha-512 properties in
+	 * artifacts.xml.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean checksums;
+
+	/**
+	 * Number of threads computing checksums when checksums is set
+	 */
+	@Parameter(defaultValue = "4")
+	private int checksumThreads;
+
+	/**
+	 * Whether to write a gzip compressed .gz sibling next to the text files of
+	 * the repository (index.html, web/site.css, site.properties, category.xml,
+	 * buildinfo.json...), for web servers serving precompressed files as is,
+	 * like nginx with gzip_static
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean precompressWebContent;
+
+	/**
+	 * Size in bytes under which text files are not precompressed
+	 */
+	@Parameter(defaultValue = "1024")
+	private long precompressMinSize;
+
+	/**
+	 * Extensions of the text files to precompress when precompressWebContent
+	 * is set. Defaults to html, htm, css, js, json, xml, properties, txt and
+	 * svg.
+	 */
+	@Parameter
+	private List<String> precompressedExtensions;
+
+	/**
+	 * Whether to leave the precompressed .gz siblings out of the repository
+	 * zip, when they are only meant for the web server
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean excludePrecompressedFromZip;
+
 	private File categoryFile;
+	private PhaseMetrics metrics;
+	/** digests of the artifact files, by path relative to the repository */
+	private final Map<String, RepositoryChecksums.Digests> artifactDigests = new ConcurrentHashMap<>();
 
 	@Override
 	public void execute() throws MojoExecutionException, MojoFailureException {
@@ -249,76 +495,318 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 			buildinfoFolder.mkdirs();
 		}
 
-		// If a siteTemplateFolder is set, pull index.html and site.css from
-		// there; otherwise use defaults
-		if (!skipWebContentGeneration) {
+		File fingerprintsFolder = new File(this.project.getBuild().getDirectory(), "facade-fingerprints");
+		PhaseFingerprints fingerprints = null;
+		if (this.incremental) {
+			fingerprints = new PhaseFingerprints(fingerprintsFolder, getLog());
+		} else {
+			// outputs about to change, whatever was recorded
 			try {
-				copyTemplateResources(outputRepository);
-			} catch (Exception ex) {
-				throw new MojoExecutionException(
-						"Error while copying siteTemplateFolder content to " + outputRepository, ex);
+				FileUtils.deleteDirectory(fingerprintsFolder);
+			} catch (IOException ex) {
+				throw new MojoExecutionException("Could not delete " + fingerprintsFolder, ex);
 			}
-			if (this.additionalWebResources != null) {
-				for (File resource : this.additionalWebResources) {
+		}
+
+		this.metrics = new PhaseMetrics();
+		PhaseScheduler phases = new PhaseScheduler();
+		if (!skipWebContentGeneration) {
+			// If a siteTemplateFolder is set, pull index.html and site.css from
+			// there; otherwise use defaults
+			addPhase(phases, fingerprints, "templates", this::getTemplatesInputs,
+					() -> getTemplatesOutputs(outputRepository),
+					() -> this.metrics.run("copyTemplateResources", () -> copyWebResources(outputRepository)));
+			addPhase(phases, fingerprints, "site", () -> getSiteInputs(outputRepository),
+					() -> new Fingerprint().file(new File(outputRepository, "category.xml"))
+							.file(new File(outputRepository, "site.properties"))
+							.file(new File(outputRepository, FEATURES_JSON))
+							.file(new File(outputRepository, this.indexName)),
+					() -> {
+						File outputCategoryXml = this.metrics.measure("generateCategoryXml",
+								() -> generateCategoryXml(outputRepository));
+						generateSiteFiles(outputRepository, outputCategoryXml);
+					}, "templates");
+		}
+		addPhase(phases, fingerprints, "content",
+				() -> new Fingerprint().value("associateSites", this.associateSites)
+						.value("referenceStrategy", this.referenceStrategy)
+						.value("removeDefaultCategory", this.removeDefaultCategory)
+						.value("unitFilters", this.unitFilters)
+						.value("xzPreset", this.xzPreset).value("xzThreads", this.xzThreads)
+						.value("xzBlockSizeMB", this.xzBlockSizeMB),
+				() -> new Fingerprint().file(new File(outputRepository, "content.jar"))
+						.file(new File(outputRepository, "content.xml.xz")),
+				() -> this.metrics.run("alterContentJar", () -> {
 					try {
-						if (resource.isDirectory()) {
-							FileUtils.copyDirectoryStructure(resource, new File(outputRepository, resource.getName()));
-						} else if (resource.isFile()) {
-							FileUtils.copyFile(resource, new File(outputRepository, resource.getName()));
+						if (new File(outputRepository, "content.jar").exists()) {
+							alterContentJar(outputRepository);
 						}
 					} catch (Exception ex) {
-						throw new MojoExecutionException("Error while copying resource " + resource.getPath(), ex);
+						throw new MojoExecutionException("Error while altering content.jar", ex);
 					}
-				}
-			}
-
-			File outputCategoryXml = generateCategoryXml(outputRepository);
-			if (new File(outputRepository, "features").isDirectory()) { //$NON-NLS-1$
-				generateSiteProperties(outputRepository, outputCategoryXml);
-			}
-			generateWebStuff(outputRepository, outputCategoryXml);
+				}));
+		if (this.p2StatsUrl != null || this.checksums) {
+			addPhase(phases, fingerprints, "artifacts",
+					() -> new Fingerprint().value("p2StatsUrl", this.p2StatsUrl).value("checksums", this.checksums)
+							.value("xzPreset", this.xzPreset).value("xzThreads", this.xzThreads)
+							.value("xzBlockSizeMB", this.xzBlockSizeMB),
+					() -> new Fingerprint().file(new File(outputRepository, "artifacts.jar"))
+							.file(new File(outputRepository, "artifacts.xml.xz")),
+					() -> {
+						if (this.checksums) {
+							this.metrics.run("hashArtifacts", () -> hashArtifacts(outputRepository));
+						}
+						this.metrics.run("addP2Stats", () -> {
+							try {
+								if (new File(outputRepository, "artifacts.jar").exists()) {
+									alterArtifactsJar(outputRepository);
+								}
+							} catch (Exception ex) {
+								throw new MojoExecutionException("Error while altering artifacts.jar", ex);
+							}
+						});
+					});
+		}
+		if (this.associateSites != null && !this.associateSites.isEmpty()
+				&& this.referenceStrategy == ReferenceStrategy.compositeReferences) {
+			addPhase(phases, fingerprints, "references",
+					() -> new Fingerprint().value("associateSites", this.associateSites)
+							.value("name", this.project.getName()).value("artifactId", this.project.getArtifactId()),
+					() -> new Fingerprint().tree(new File(outputRepository, "references"), true)
+							.tree(new File(outputRepository, "withreferences"), true),
+					() -> this.metrics.run("createCompositeReferences", () -> {
+						try {
+							createCompositeReferences(outputRepository, this.associateSites);
+						} catch (IOException ex) {
+							throw new MojoFailureException(ex.getMessage(), ex);
+						}
+					}));
+		}
+		if (!skipBuildInfo) {
+			// collect buildinfo.json files from upstream and store them in target/buildinfo/
+			// also save a copy of the merged buildinfo.json in target/repository/
+			addPhase(phases, fingerprints, "buildinfo", this::getBuildInfoInputs,
+					() -> new Fingerprint().tree(buildinfoFolder, true)
+							.file(new File(outputRepository, BUILDINFO_JSON))
+							.file(new File(outputRepository, BUILDINFO_GRAPH_JSON)),
+					() -> this.metrics.run("createBuildInfo", () -> createBuildInfo(outputRepository, buildinfoFolder)));
+		}
+		if (this.precompressWebContent) {
+			// once the text files of the repository are final
+			addPhase(phases, fingerprints, "precompress",
+					() -> new Fingerprint().value("precompressMinSize", this.precompressMinSize)
+							.value("precompressedExtensions", this.precompressedExtensions),
+					() -> new Fingerprint().tree(outputRepository, false),
+					() -> this.metrics.run("precompressWebContent", () -> precompressWebContent(outputRepository)),
+					phases.phaseNames());
+		}
+		if (this.checksums) {
+			// once all other files of the repository are final
+			addPhase(phases, fingerprints, "checksums", () -> new Fingerprint(),
+					() -> new Fingerprint().tree(outputRepository, false),
+					() -> this.metrics.run("writeChecksums", () -> writeChecksums(outputRepository)),
+					phases.phaseNames());
 		}
+		File repoZipFile = new File(this.project.getBuild().getDirectory(),
+				this.project.getArtifactId() + "-" + this.project.getVersion() + ".zip");
+		addPhase(phases, fingerprints, "zip",
+				() -> new Fingerprint().value("storeCompressedZipEntries", this.storeCompressedZipEntries)
+						.value("storedZipEntryExtensions", this.storedZipEntryExtensions)
+						.value("excludePrecompressedFromZip", this.excludePrecompressedFromZip),
+				// the repository is too large to be read every time
+				() -> new Fingerprint().tree(outputRepository, false).tree(repoZipFile, false),
+				() -> this.metrics.run("createRepositoryZip", () -> createRepositoryZip(outputRepository, repoZipFile)),
+				phases.phaseNames());
 		try {
-			if (new File(outputRepository, "content.jar").exists()) {
-				alterContentJar(outputRepository);
-			}
-		} catch (Exception ex) {
-			throw new MojoExecutionException("Error while altering content.jar", ex);
+			phases.run(this.phaseThreads);
+		} finally {
+			writeMetrics();
 		}
-		if (this.p2StatsUrl != null) {
+
+		if (fingerprints != null) {
 			try {
-				addP2Stats(outputRepository);
-			} catch (Exception ex) {
-				throw new MojoExecutionException("Error while adding p2.stats to repository", ex);
+				fingerprints.record();
+			} catch (IOException ex) {
+				throw new MojoExecutionException("Could not record fingerprints in " + fingerprintsFolder, ex);
+			}
+			if (fingerprints.getSkipped() > 0) {
+				getLog().info(fingerprints.getSkipped() + " phase(s) skipped as up to date");
 			}
 		}
-		if (this.associateSites != null && !this.associateSites.isEmpty()
-				&& this.referenceStrategy == ReferenceStrategy.compositeReferences) {
+	}
+
+	private void writeMetrics() {
+		File metricsFile = new File(this.project.getBuild().getDirectory(), "facade-metrics.json");
+		try {
+			this.metrics.write(metricsFile);
+		} catch (IOException ex) {
+			getLog().warn("Could not write " + metricsFile + ": " + ex.getMessage());
+		}
+		getLog().info("Repository facade phases (details in " + metricsFile.getName() + "):");
+		this.metrics.logSummary(getLog());
+	}
+
+	/*
+	 * Adds a phase, which is skipped in incremental mode when its fingerprints did not change
+	 */
+	private void addPhase(PhaseScheduler phases, PhaseFingerprints fingerprints, String name,
+			IOSupplier<Fingerprint> inputs, IOSupplier<Fingerprint> outputs, PhaseScheduler.Phase phase,
+			String... dependencies) throws MojoExecutionException {
+		if (fingerprints != null) {
 			try {
-				createCompositeReferences(outputRepository, this.associateSites);
+				phase = fingerprints.check(name, inputs, outputs, phase, dependencies);
 			} catch (IOException ex) {
-				throw new MojoFailureException(ex.getMessage(), ex);
+				throw new MojoExecutionException("Could not fingerprint phase " + name, ex);
 			}
 		}
+		phases.add(name, phase, dependencies);
+	}
 
-		if (!skipBuildInfo) {
-			// collect buildinfo.json files from upstream and store them in target/buildinfo/
-			// also save a copy of the merged buildinfo.json in target/repository/
-			createBuildInfo(outputRepository, buildinfoFolder);
+	private Fingerprint getTemplatesInputs() throws IOException {
+		Fingerprint res = new Fingerprint().value("indexName", this.indexName).value("cssName", this.cssName)
+				.resource("/index.html").resource("/web/" + this.cssName);
+		if (this.siteTemplateFolder != null) {
+			res.tree(this.siteTemplateFolder, true);
+		}
+		if (this.additionalWebResources != null) {
+			for (File resource : this.additionalWebResources) {
+				res.tree(resource, true);
+			}
 		}
+		return res;
+	}
 
-		File repoZipFile = new File(this.project.getBuild().getDirectory(),
-				this.project.getArtifactId() + "-" + this.project.getVersion() + ".zip");
+	/*
+	 * The files synced from the web resources may be changed or deleted in the
+	 * repository as well as in their source, by size and time as they may be large
+	 */
+	private Fingerprint getTemplatesOutputs(File outputRepository) throws IOException {
+		Fingerprint res = new Fingerprint().file(new File(outputRepository, this.indexName))
+				.file(new File(outputRepository, "web/" + this.cssName));
+		if (this.siteTemplateFolder != null && this.siteTemplateFolder.isDirectory()) {
+			Path templates = this.siteTemplateFolder.toPath();
+			List<Path> files;
+			try (Stream<Path> walk = Files.walk(templates)) {
+				files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+			}
+			for (Path file : files) {
+				res.tree(new File(outputRepository, templates.relativize(file).toString()), false);
+			}
+		}
+		if (this.additionalWebResources != null) {
+			for (File resource : this.additionalWebResources) {
+				res.tree(new File(outputRepository, resource.getName()), false);
+			}
+		}
+		return res;
+	}
+
+	private Fingerprint getSiteInputs(File outputRepository) throws IOException {
+		Fingerprint res = new Fingerprint().file(this.categoryFile)
+				.value("symbols", new TreeMap<>(this.symbols));
+		if (this.siteXsl != null) {
+			res.file(this.siteXsl);
+		} else {
+			res.resource(getSiteXslResource());
+		}
+		res.value("featureIndex", this.featureIndex);
+		if (this.featureIndex) {
+			res.resource("/xslt/features.json.xsl");
+		}
+		if (this.sitePropertiesXsl != null) {
+			res.file(this.sitePropertiesXsl);
+		} else {
+			res.resource("/xslt/site.properties.xsl");
+		}
+		// feature versions, as found in category.xml once generated
+		String[] features = new File(outputRepository, "features").list();
+		if (features != null) {
+			Arrays.sort(features);
+		}
+		return res.value("features", features != null ? Arrays.asList(features) : null);
+	}
+
+	private Fingerprint getBuildInfoInputs() throws IOException {
+		Fingerprint res = new Fingerprint();
+		for (String repositoryUrl : getUpstreamRepositoryUrls()) {
+			res.value("repository", repositoryUrl);
+		}
+		try {
+			res.value("HEAD", createRevisionObject().get("HEAD").asString());
+		} catch (FileNotFoundException ex) {
+			res.value("HEAD", null);
+		}
+		for (String propertyName : new TreeSet<>(this.systemProperties)) {
+			res.value(propertyName, System.getProperty(propertyName));
+		}
+		return res.value("fallbackToChild", this.fallbackToChild)
+				.value("upstreamBuildInfoFields", this.upstreamBuildInfoFields)
+				.value("buildInfoMaxBytes", this.buildInfoMaxBytes)
+				.value("upstreamBuildInfoGraphDepth", this.upstreamBuildInfoGraphDepth);
+	}
+
+	private void copyWebResources(File outputRepository) throws MojoExecutionException {
+		try {
+			copyTemplateResources(outputRepository);
+		} catch (Exception ex) {
+			throw new MojoExecutionException(
+					"Error while copying siteTemplateFolder content to " + outputRepository, ex);
+		}
+		if (this.additionalWebResources != null) {
+			for (File resource : this.additionalWebResources) {
+				try {
+					if (resource.exists()) {
+						syncWebResources(resource, new File(outputRepository, resource.getName()));
+					}
+				} catch (Exception ex) {
+					throw new MojoExecutionException("Error while copying resource " + resource.getPath(), ex);
+				}
+			}
+		}
+	}
+
+	private void createRepositoryZip(File outputRepository, File repoZipFile) throws MojoFailureException {
 		repoZipFile.delete();
-		ZipArchiver archiver = new ZipArchiver();
-		archiver.setDestFile(repoZipFile);
-		archiver.setForced(true);
-		archiver.addDirectory(outputRepository);
+		PhaseMetrics.current().readFile(outputRepository);
 		try {
-			archiver.createArchive();
+			List<String> excludes = Collections.emptyList();
+			if (this.excludePrecompressedFromZip) {
+				excludes = getPrecompressedFiles().listSiblings(outputRepository);
+			}
+			if (this.storeCompressedZipEntries || this.zipThreads > 1) {
+				List<String> storedExtensions = Collections.emptyList();
+				if (this.storeCompressedZipEntries) {
+					storedExtensions = this.storedZipEntryExtensions != null ? this.storedZipEntryExtensions
+							: RepositoryArchiver.DEFAULT_STORED_EXTENSIONS;
+				}
+				RepositoryArchiver archiver = new RepositoryArchiver(storedExtensions, this.zipThreads);
+				archiver.exclude(excludes);
+				archiver.createArchive(outputRepository, repoZipFile);
+			} else {
+				ZipArchiver archiver = new ZipArchiver();
+				archiver.setDestFile(repoZipFile);
+				archiver.setForced(true);
+				archiver.addDirectory(outputRepository, null, excludes.toArray(new String[excludes.size()]));
+				archiver.createArchive();
+			}
 		} catch (IOException ex) {
 			throw new MojoFailureException("Could not create " + repoZipFile.getName(), ex);
 		}
+		PhaseMetrics.current().writtenFile(repoZipFile);
+	}
+
+	private PrecompressedFiles getPrecompressedFiles() {
+		return new PrecompressedFiles(this.precompressedExtensions != null ? this.precompressedExtensions
+				: PrecompressedFiles.DEFAULT_EXTENSIONS, this.precompressMinSize);
+	}
+
+	private void precompressWebContent(File outputRepository) throws MojoFailureException {
+		try {
+			List<String> siblings = getPrecompressedFiles().compress(outputRepository);
+			getLog().info("Precompressed " + siblings.size() + " text file(s) of " + outputRepository);
+		} catch (IOException ex) {
+			throw new MojoFailureException("Could not precompress the text files of " + outputRepository, ex);
+		}
 	}
 
 	private void createCompositeReferences(File outputRepository, List<String> associateSites2) throws IOException {
@@ -345,8 +833,7 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 		}
 		content.append("  </references>").append('\n');
 		content.append("</repository>");
-		org.apache.commons.io.FileUtils.writeStringToFile(contentXmlReference, content.toString(),
-				StandardCharsets.UTF_8);
+		ReplacingOutputStream.write(contentXmlReference, content.toString().getBytes(StandardCharsets.UTF_8));
 
 		File compositeWithRefDir = new File(outputRepository, "withreferences");
 		compositeWithRefDir.mkdir();
@@ -364,8 +851,8 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 				.append("    <child location='../references'/>").append('\n')
 				.append("  </children>").append('\n')
 				.append("</repository>");
-			org.apache.commons.io.FileUtils.writeStringToFile(compositeContentXml, compositeContent.toString(),
-					StandardCharsets.UTF_8);
+			ReplacingOutputStream.write(compositeContentXml,
+					compositeContent.toString().getBytes(StandardCharsets.UTF_8));
 		}
 		{
 			File compositeArtifactsXml = new File(compositeWithRefDir, "compositeArtifacts.xml");
@@ -380,23 +867,69 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 				.append("    <child location='../'/>").append('\n')
 				.append("  </children>").append('\n')
 				.append("</repository>");
-			org.apache.commons.io.FileUtils.writeStringToFile(compositeArtifactsXml, compositeArtifact.toString(),
-					StandardCharsets.UTF_8);
+			ReplacingOutputStream.write(compositeArtifactsXml,
+					compositeArtifact.toString().getBytes(StandardCharsets.UTF_8));
 		}
+		PhaseMetrics.current().writtenFile(referencesDir);
+		PhaseMetrics.current().writtenFile(compositeWithRefDir);
 	}
 
-	private void generateWebStuff(File outputRepository, File outputCategoryXml)
-			throws TransformerFactoryConfigurationError, MojoExecutionException {
+	/*
+	 * category.xml is parsed only once; site.properties and index.html are then generated concurrently from that tree
+	 */
+	private void generateSiteFiles(File outputRepository, File outputCategoryXml)
+			throws MojoExecutionException, MojoFailureException {
+		Source category = this.metrics.measure("generateCategoryXml", () -> {
+			try {
+				PhaseMetrics.current().readFile(outputCategoryXml);
+				return XsltTemplates.buildTree(outputCategoryXml);
+			} catch (TransformerException ex) {
+				throw new MojoExecutionException("Could not parse " + outputCategoryXml, ex);
+			}
+		});
+		ExecutorService executor = null;
+		Future<?> siteProperties = null;
+		if (new File(outputRepository, "features").isDirectory()) { //$NON-NLS-1$
+			executor = Executors.newSingleThreadExecutor();
+			siteProperties = executor.submit(() -> {
+				this.metrics.run("generateSiteProperties", () -> generateSiteProperties(outputRepository, category));
+				return null;
+			});
+		}
+		try {
+			this.metrics.run("generateWebStuff", () -> generateWebStuff(outputRepository, category));
+			if (siteProperties != null) {
+				siteProperties.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted while generating 'site.properties'", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof MojoExecutionException) {
+				throw (MojoExecutionException) ex.getCause();
+			}
+			throw new MojoExecutionException("Error occured while generating 'site.properties'", ex.getCause());
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	private void generateWebStuff(File outputRepository, Source category)
+			throws TransformerFactoryConfigurationError, MojoExecutionException, MojoFailureException {
+		File featuresJson = new File(outputRepository, FEATURES_JSON);
+		if (this.featureIndex) {
+			this.metrics.run("generateFeatureIndex", () -> generateFeatureIndex(featuresJson, category));
+		} else {
+			featuresJson.delete();
+		}
 		// Generate index.html
-		try (InputStream siteXsl = getClass().getResourceAsStream("/xslt/site.xsl");
-				ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-			Source xsltSource = new StreamSource(siteXsl);
-			Transformer transformer = TransformerFactory.newInstance().newTransformer(xsltSource);
+		try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			Transformer transformer = XsltTemplates.newTransformer(this.session, this.siteXsl, getSiteXslResource());
 			Result res = new StreamResult(out);
-			transformer.transform(new StreamSource(outputCategoryXml), res);
-			siteXsl.close();
+			transformer.transform(category, res);
 			this.symbols.put("${site.contents}", out.toString());
-			out.close();
 		} catch (Exception ex) {
 			throw new MojoExecutionException("Error occured while generating 'site.xsl'", ex);
 		}
@@ -407,18 +940,31 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 		}
 	}
 
-	private void generateSiteProperties(File outputRepository, File outputCategoryXml)
+	private String getSiteXslResource() {
+		return this.featureIndex ? "/xslt/site-index.xsl" : "/xslt/site.xsl";
+	}
+
+	private void generateFeatureIndex(File featuresJson, Source category) throws MojoExecutionException {
+		try (ReplacingOutputStream file = new ReplacingOutputStream(featuresJson);
+				OutputStream out = PhaseMetrics.current().countWritten(file)) {
+			Transformer transformer = XsltTemplates.newTransformer(this.session, null, "/xslt/features.json.xsl");
+			transformer.transform(category, new StreamResult(out));
+			file.commit();
+		} catch (Exception ex) {
+			throw new MojoExecutionException("Error occured while generating '" + FEATURES_JSON + "'", ex);
+		}
+	}
+
+	private void generateSiteProperties(File outputRepository, Source category)
 			throws TransformerFactoryConfigurationError, MojoExecutionException {
 		// Generate site.properties
-		try (InputStream siteXsl = getClass().getResourceAsStream("/xslt/site.properties.xsl");
-				FileOutputStream out = new FileOutputStream(new File(outputRepository, "site.properties"))) {
-
-			Source xsltSource = new StreamSource(siteXsl);
-			Transformer transformer = TransformerFactory.newInstance().newTransformer(xsltSource);
+		try (ReplacingOutputStream file = new ReplacingOutputStream(new File(outputRepository, "site.properties"));
+				OutputStream out = PhaseMetrics.current().countWritten(file)) {
+			Transformer transformer = XsltTemplates.newTransformer(this.session, this.sitePropertiesXsl,
+					"/xslt/site.properties.xsl");
 			Result res = new StreamResult(out);
-			transformer.transform(new StreamSource(outputCategoryXml), res);
-			siteXsl.close();
-			out.close();
+			transformer.transform(category, res);
+			file.commit();
 		} catch (Exception ex) {
 			throw new MojoExecutionException("Error occured while generating 'site.properties'", ex);
 		}
@@ -432,6 +978,7 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 		UpdateSite site = null;
 		try {
 			site = UpdateSite.read(this.categoryFile);
+			PhaseMetrics.current().readFile(this.categoryFile);
 		} catch (IOException ex) {
 			throw new MojoExecutionException("Could not read 'category.xml' file", ex);
 		}
@@ -456,12 +1003,14 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 				});
 
 		File outputCategoryXml = new File(outputRepository, "category.xml");
+		// replaced rather than written in place, as it may be linked to a web resource
+		File writtenCategoryXml = new File(outputRepository, "category.xml.tmp");
 		try {
-			if (!outputCategoryXml.exists()) {
-				outputCategoryXml.createNewFile();
-			}
-			UpdateSite.write(site, outputCategoryXml);
+			UpdateSite.write(site, writtenCategoryXml);
+			Files.move(writtenCategoryXml.toPath(), outputCategoryXml.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			PhaseMetrics.current().writtenFile(outputCategoryXml);
 		} catch (IOException ex) {
+			writtenCategoryXml.delete();
 			ex.printStackTrace();
 			throw new MojoExecutionException(
 					"Could not write category.xml to '" + outputCategoryXml.getAbsolutePath() + "'", ex);
@@ -471,225 +1020,198 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 
 	/**
 	 * Alter content.xml, content.jar, content.xml.xz to:
-	 * remove default "Uncategorized" category, 
+	 * remove default "Uncategorized" category and units matched by unitFilters, 
 	 * remove 3rd party associate sites, and 
 	 * add associate sites defined in site's pom.xml
 	 *
+	 * content.xml is streamed through a {@link ContentXmlRewriter}, so memory
+	 * use does not grow with the number of units.
+	 *
 	 * @param p2repository
-	 * @throws FileNotFoundException
 	 * @throws IOException
-	 * @throws SAXException
-	 * @throws ParserConfigurationException
-	 * @throws TransformerFactoryConfigurationError
-	 * @throws TransformerConfigurationException
-	 * @throws TransformerException
+	 * @throws XMLStreamException
 	 * @throws MojoFailureException
 	 */
-	private void alterContentJar(File p2repository) throws FileNotFoundException, IOException, SAXException,
-			ParserConfigurationException, TransformerFactoryConfigurationError, TransformerConfigurationException,
-			TransformerException, MojoFailureException {
-		File contentJar = new File(p2repository, "content.jar");
-		try (ZipInputStream contentStream = new ZipInputStream(new FileInputStream(contentJar))) {
-			ZipEntry entry = null;
-			Document contentDoc = null;
-			boolean done = false;
-			while (!done && (entry = contentStream.getNextEntry()) != null) {
-				if (entry.getName().equals("content.xml")) {
-					contentDoc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(contentStream);
-					Element repoElement = (Element) contentDoc.getElementsByTagName("repository").item(0);
-					if (this.associateSites != null) {
-						NodeList references = repoElement.getElementsByTagName("references");
-						// remove default references
-						for (int i = 0; i < references.getLength(); i++) {
-							Node currentRef = references.item(i);
-							currentRef.getParentNode().removeChild(currentRef);
-						}
-						// add associateSites
-						if (this.associateSites.size() > 0 && this.referenceStrategy == ReferenceStrategy.embedReferences) {
-							Element refElement = contentDoc.createElement("references");
-							refElement.setAttribute("size", Integer.valueOf(2 * associateSites.size()).toString());
-							for (String associate : associateSites) {
-								Element rep0 = contentDoc.createElement("repository");
-								rep0.setAttribute("uri", associate);
-								rep0.setAttribute("url", associate);
-								rep0.setAttribute("type", "0");
-								rep0.setAttribute("options", "1");
-								refElement.appendChild(rep0);
-								Element rep1 = (Element) rep0.cloneNode(true);
-								rep1.setAttribute("type", "1");
-								refElement.appendChild(rep1);
-							}
-							repoElement.appendChild(refElement);
-						}
-					}
-					// remove default "Uncategorized" category
-					if (this.removeDefaultCategory) {
-						Element unitsElement = (Element) repoElement.getElementsByTagName("units").item(0);
-						NodeList units = unitsElement.getElementsByTagName("unit");
-						for (int i = 0; i < units.getLength(); i++) {
-							Element unit = (Element) units.item(i);
-							String id = unit.getAttribute("id");
-							if (id != null && id.contains(".Default")) {
-								unit.getParentNode().removeChild(unit);
-							}
-						}
-						unitsElement.setAttribute("size",
-								Integer.toString(unitsElement.getElementsByTagName("unit").getLength()));
-					}
-					done = true;
-				}
+	private void alterContentJar(File p2repository) throws IOException, XMLStreamException, MojoFailureException {
+		List<UnitFilter> filters = new ArrayList<>();
+		if (this.unitFilters != null) {
+			filters.addAll(this.unitFilters);
+		}
+		if (this.removeDefaultCategory) {
+			filters.add(UnitFilter.defaultCategory());
+		}
+		ContentXmlRewriter rewriter = new ContentXmlRewriter(this.associateSites,
+				this.referenceStrategy == ReferenceStrategy.embedReferences, filters);
+		try {
+			rewriteMetadata(p2repository, "content", rewriter);
+		} catch (PatternSyntaxException ex) {
+			throw new MojoFailureException("Invalid pattern in unitFilters: " + ex.getMessage(), ex);
+		}
+		if (!rewriter.getRemovedUnits().isEmpty()) {
+			getLog().info("Removed " + rewriter.getRemovedUnits().size() + " unit(s) from content.xml");
+			for (String unit : rewriter.getRemovedUnits()) {
+				getLog().debug("  " + unit);
 			}
-			// .close and .closeEntry raise exception:
-			// https://issues.apache.org/bugzilla/show_bug.cgi?id=3862
-			ZipOutputStream outContentStream = new ZipOutputStream(new FileOutputStream(contentJar));
-			ZipEntry contentXmlEntry = new ZipEntry("content.xml");
-			outContentStream.putNextEntry(contentXmlEntry);
-			Transformer transformer = TransformerFactory.newInstance().newTransformer();
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-			transformer.setOutputProperty(OutputKeys.STANDALONE, "yes");
-			DOMSource source = new DOMSource(contentDoc);
-			StreamResult result = new StreamResult(outContentStream);
-			transformer.transform(source, result);
-			contentStream.close();
-			outContentStream.closeEntry();
-			outContentStream.close();
-			alterXzFile(new File(p2repository, "content.xml"), new File(p2repository, "content.xml.xz"), transformer,
-					source);
-		} catch (DOMException | IllegalArgumentException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
 		}
 	}
 
 	/**
-	 * Add p2 stats to the repository's artifacts.xml (and .jar and .xml.xz) 
-	 * See http://wiki.eclipse.org/Equinox_p2_download_stats
+	 * Rewrite a p2 metadata file (content or artifacts) in both its .jar and
+	 * .xml.xz forms. The document is serialized once and teed into the jar entry
+	 * and the XZ stream, so there is no intermediate .xml file. New files are
+	 * written next to the original ones, which are only replaced once the
+	 * rewrite succeeded.
+	 *
+	 * @param metadataName "content" or "artifacts"
+	 */
+	private void rewriteMetadata(File p2repository, String metadataName, MetadataRewriter rewriter)
+			throws IOException, XMLStreamException, MojoFailureException {
+		String entryName = metadataName + ".xml";
+		File jar = new File(p2repository, metadataName + ".jar");
+		// JBDS-3929 overwrite the .xml.xz file too
+		// see also https://bugs.eclipse.org/bugs/show_bug.cgi?id=464614
+		File xz = new File(p2repository, entryName + ".xz");
+		File rewrittenJar = new File(p2repository, jar.getName() + ".tmp");
+		File rewrittenXz = new File(p2repository, xz.getName() + ".tmp");
+		PhaseMetrics.Step step = PhaseMetrics.current();
+		try (ZipFile zip = new ZipFile(jar)) {
+			ZipEntry entry = zip.getEntry(entryName);
+			if (entry == null) {
+				throw new MojoFailureException("Could not find " + entryName + " in " + jar);
+			}
+			try (ZipOutputStream jarOut = new ZipOutputStream(new FileOutputStream(rewrittenJar));
+					OutputStream xzOut = openXzStream(rewrittenXz)) {
+				jarOut.putNextEntry(new ZipEntry(entryName));
+				rewriter.rewrite(() -> step.countRead(zip.getInputStream(entry)), new TeeOutputStream(jarOut, xzOut));
+				jarOut.closeEntry();
+			}
+		} catch (IOException | XMLStreamException | MojoFailureException | RuntimeException ex) {
+			rewrittenJar.delete();
+			rewrittenXz.delete();
+			throw ex;
+		}
+		Files.move(rewrittenJar.toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Files.move(rewrittenXz.toPath(), xz.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		step.writtenFile(jar);
+		step.writtenFile(xz);
+	}
+
+	private OutputStream openXzStream(File xzFile) throws IOException {
+		OutputStream out = new FileOutputStream(xzFile);
+		if (this.xzThreads > 1) {
+			return new ParallelXZOutputStream(out, this.xzPreset, this.xzBlockSizeMB * 1024 * 1024, this.xzThreads);
+		}
+		return new XZCompressorOutputStream(out, this.xzPreset);
+	}
+
+	/**
+	 * Add p2 stats and checksums to the repository's artifacts.xml (and .jar
+	 * and .xml.xz) See http://wiki.eclipse.org/Equinox_p2_download_stats
+	 *
+	 * artifacts.xml is streamed through an {@link ArtifactsXmlRewriter}, so
+	 * memory use does not grow with the number of artifacts.
 	 *
 	 * @param p2repository
-	 * @throws FileNotFoundException
 	 * @throws IOException
-	 * @throws SAXException
-	 * @throws ParserConfigurationException
-	 * @throws TransformerFactoryConfigurationError
-	 * @throws TransformerConfigurationException
-	 * @throws TransformerException
+	 * @throws XMLStreamException
 	 * @throws MojoFailureException
 	 */
-	private void addP2Stats(File p2repository) throws FileNotFoundException, IOException, SAXException,
-			ParserConfigurationException, TransformerFactoryConfigurationError, TransformerConfigurationException,
-			TransformerException, MojoFailureException {
-		File artifactsJar = new File(p2repository, "artifacts.jar");
-		ZipInputStream contentStream = new ZipInputStream(new FileInputStream(artifactsJar));
-		ZipEntry entry = null;
-		Document contentDoc = null;
-		boolean done = false;
-		while (!done && (entry = contentStream.getNextEntry()) != null) {
-			if (entry.getName().equals("artifacts.xml")) {
-				contentDoc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(contentStream);
-				Element repoElement = (Element) contentDoc.getElementsByTagName("repository").item(0);
-				// Add p2.StatsURI property
-				Element repoProperties = (Element) contentDoc.getElementsByTagName("properties").item(0);
-				int newRepoPropertiesSize = Integer.parseInt(repoProperties.getAttribute("size")) + 1;
-				repoProperties.setAttribute("size", Integer.toString(newRepoPropertiesSize));
-				Element p2statsElement = contentDoc.createElement("property");
-				p2statsElement.setAttribute("name", "p2.statsURI");
-				p2statsElement.setAttribute("value", this.p2StatsUrl);
-				repoProperties.appendChild(p2statsElement);
-				// process features
-				NodeList artifacts = ((Element) repoElement.getElementsByTagName("artifacts").item(0))
-						.getElementsByTagName("artifact");
-				for (int i = 0; i < artifacts.getLength(); i++) {
-					Element currentArtifact = (Element) artifacts.item(i);
-					if (currentArtifact.getAttribute("classifier").equals("org.eclipse.update.feature")) {
-						String iu = currentArtifact.getAttribute("id");
-						Element artifactProperties = (Element) currentArtifact.getElementsByTagName("properties")
-								.item(0);
-						int newArtifactPropertiesSize = Integer.parseInt(artifactProperties.getAttribute("size")) + 1;
-						artifactProperties.setAttribute("size", Integer.toString(newArtifactPropertiesSize));
-						Element statsElement = contentDoc.createElement("property");
-						statsElement.setAttribute("name", "download.stats");
-						statsElement.setAttribute("value", iu);
-						artifactProperties.appendChild(statsElement);
+	private void alterArtifactsJar(File p2repository) throws IOException, XMLStreamException, MojoFailureException {
+		rewriteMetadata(p2repository, "artifacts", new ArtifactsXmlRewriter(this.p2StatsUrl, !this.checksums ? null
+				: path -> {
+					RepositoryChecksums.Digests digests = this.artifactDigests.get(path);
+					return digests != null ? digests.toProperties() : null;
+				}));
+	}
+
+	/**
+	 * Computes the digests of the plugins, features and binaries of the
+	 * repository, before they are recorded in artifacts.xml.
+	 */
+	private void hashArtifacts(File p2repository) throws MojoFailureException {
+		List<Path> files = new ArrayList<>();
+		try {
+			for (String folder : new String[] { "plugins", "features", "binary" }) {
+				Path root = new File(p2repository, folder).toPath();
+				if (Files.isDirectory(root)) {
+					try (Stream<Path> paths = Files.walk(root)) {
+						paths.filter(Files::isRegularFile).sorted().forEach(files::add);
 					}
 				}
-				done = true;
-			}
-		}
-		// .close and .closeEntry raise exception:
-		// https://issues.apache.org/bugzilla/show_bug.cgi?id=3862
-		ZipOutputStream outContentStream = new ZipOutputStream(new FileOutputStream(artifactsJar));
-		ZipEntry contentXmlEntry = new ZipEntry("artifacts.xml");
-		outContentStream.putNextEntry(contentXmlEntry);
-		Transformer transformer = TransformerFactory.newInstance().newTransformer();
-		transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-		transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-		DOMSource source = new DOMSource(contentDoc);
-		StreamResult result = new StreamResult(outContentStream);
-		transformer.transform(source, result);
-		contentStream.close();
-		outContentStream.closeEntry();
-		outContentStream.close();
-		alterXzFile(new File(p2repository, "artifacts.xml"), new File(p2repository, "artifacts.xml.xz"), transformer,
-				source);
-
-	}
-
-	/**
-	 * Add p2 stats to the repository's artifacts.xml (and .jar and .xml.xz) 
-	 * See http://wiki.eclipse.org/Equinox_p2_download_stats
-	 * 
-	 * @param theXml
-	 * @param theXmlXz
-	 * @param transformer
-	 * @param source
-	 * @throws MojoFailureException
-	 * 
+			}
+			this.artifactDigests.clear();
+			this.artifactDigests.putAll(
+					new RepositoryChecksums(this.checksumThreads).digest(p2repository.toPath(), files));
+		} catch (IOException ex) {
+			throw new MojoFailureException("Could not compute the checksums of artifacts", ex);
+		}
+	}
+
+	/**
+	 * Writes the SHA256SUMS and SHA512SUMS manifests of all files of the
+	 * repository. Digests of artifacts computed for artifacts.xml are reused.
+	 */
+	private void writeChecksums(File p2repository) throws MojoFailureException {
+		Path root = p2repository.toPath();
+		List<String> manifests = Arrays.asList(RepositoryChecksums.MANIFESTS);
+		SortedMap<String, RepositoryChecksums.Digests> digests = new TreeMap<>();
+		List<Path> files = new ArrayList<>();
+		try (Stream<Path> paths = Files.walk(root)) {
+			paths.filter(Files::isRegularFile).sorted().forEach(path -> {
+				String relativePath = RepositoryChecksums.relativePath(root, path);
+				RepositoryChecksums.Digests known = this.artifactDigests.get(relativePath);
+				if (known != null) {
+					digests.put(relativePath, known);
+				} else if (!manifests.contains(relativePath)) {
+					files.add(path);
+				}
+			});
+			digests.putAll(new RepositoryChecksums(this.checksumThreads).digest(root, files));
+			RepositoryChecksums.writeManifests(p2repository, digests);
+		} catch (IOException ex) {
+			throw new MojoFailureException("Could not write the checksums of " + p2repository, ex);
+		}
+		getLog().info("Checksums of " + digests.size() + " file(s) written to "
+				+ String.join(" and ", manifests));
+	}
+
+	/*
+	 * The index is always written from the template rather than from the index.html
+	 * of the repository, which no longer has the ${...} symbols once altered: in
+	 * incremental mode, the "templates" phase is skipped when only the site changed
 	 */
+	private void alterIndexFile(File outputSite) throws IOException {
+		File indexFile = new File(outputSite, this.indexName);
+		File alteredFile = new File(outputSite, this.indexName + ".tmp");
+		try (Reader in = new BufferedReader(new InputStreamReader(
+				PhaseMetrics.current().countRead(openIndexTemplate()), StandardCharsets.UTF_8));
+				Writer out = Files.newBufferedWriter(alteredFile.toPath(), StandardCharsets.UTF_8)) {
+			new SymbolReplacer(this.symbols).replace(in, out);
+		} catch (IOException ex) {
+			alteredFile.delete();
+			throw ex;
+		}
+		Files.move(alteredFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		PhaseMetrics.current().writtenFile(indexFile);
+	}
 
-	private void alterXzFile(File theXml, File theXmlXz, Transformer transformer, DOMSource source)
-			throws MojoFailureException {
-		try {
-			// JBDS-3929 overwrite the artifacts.xml.xz file too
-			// see also https://bugs.eclipse.org/bugs/show_bug.cgi?id=464614
-			FileUtils.forceDelete(theXmlXz);
-			FileOutputStream outStreamXml = new FileOutputStream(theXml);
-			StreamResult resultXml = new StreamResult(outStreamXml);
-			transformer.transform(source, resultXml);
-			outStreamXml.close();
-			BufferedInputStream in = new BufferedInputStream(new FileInputStream(theXml));
-			XZCompressorOutputStream out = new XZCompressorOutputStream(new FileOutputStream(theXmlXz));
-			final byte[] buffer = new byte[1024];
-			int n = 0;
-			while (-1 != (n = in.read(buffer))) {
-				out.write(buffer, 0, n);
-			}
-			out.close();
-			in.close();
-			FileUtils.forceDelete(theXml);
-		} catch (IOException | TransformerException ex) {
-			getLog().error(ex);
-			throw new MojoFailureException("Error while compressing " + theXml.toString(), ex);
-		}
-	}
-
-	private void alterIndexFile(File outputSite) throws FileNotFoundException, IOException {
-		File templateFile = new File(outputSite, this.indexName);
-		FileInputStream fis = new FileInputStream(templateFile);
-		String htmlFile = IOUtil.toString(fis, "UTF-8");
-		for (Entry<String, String> entry : this.symbols.entrySet()) {
-			String key = entry.getKey();
-			if (!key.startsWith("${")) {
-				key = "${" + key + "}";
-			}
-			if (entry.getValue() != null) {
-				htmlFile = htmlFile.replace(key, entry.getValue());
-			}
-		}
-		FileOutputStream out = new FileOutputStream(templateFile);
-		out.write(htmlFile.getBytes("UTF-8"));
-		fis.close();
-		out.close();
+	/**
+	 * @return the index of the siteTemplateFolder if any, or the default one
+	 */
+	private InputStream openIndexTemplate() throws IOException {
+		if (this.siteTemplateFolder != null) {
+			File template = new File(this.siteTemplateFolder, this.indexName);
+			if (template.isFile()) {
+				return new FileInputStream(template);
+			}
+		}
+		return getClass().getResourceAsStream("/index.html");
+	}
+
+	private void syncWebResources(File source, File target) throws IOException {
+		DirectorySync.Result result = new DirectorySync(this.webResourcesCheck, this.linkWebResources,
+				this.webResourcesThreads).sync(source.toPath(), target.toPath());
+		getLog().debug("Copied " + source + " to " + target + ": " + result);
 	}
 
 	private void copyTemplateResources(File outputSite) throws IOException, MojoExecutionException {
@@ -703,7 +1225,7 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 			if (!outputSite.isDirectory()) {
 				outputSite.mkdirs();
 			}
-			FileUtils.copyDirectoryStructure(this.siteTemplateFolder, outputSite);
+			syncWebResources(this.siteTemplateFolder, outputSite);
 
 			// verify we have everything we need after copying from the
 			// siteTemplateFolder
@@ -712,6 +1234,7 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 				getLog().warn("No " + this.siteTemplateFolder + "/" + this.indexName + " found; using default.");
 				InputStream indexStream = getClass().getResourceAsStream("/index.html");
 				FileUtils.copyStreamToFile(new RawInputStreamFacade(indexStream), new File(outputSite, this.indexName));
+				PhaseMetrics.current().copied(new File(outputSite, this.indexName));
 				indexStream.close();
 			}
 			File webFolder = new File(outputSite, "web");
@@ -723,12 +1246,14 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 				getLog().warn("No " + webFolder + "/" + this.cssName + " found; using default.");
 				InputStream cssStream = getClass().getResourceAsStream("/web/" + this.cssName);
 				FileUtils.copyStreamToFile(new RawInputStreamFacade(cssStream), new File(webFolder, this.cssName));
+				PhaseMetrics.current().copied(new File(webFolder, this.cssName));
 				cssStream.close();
 			}
 		} else {
 			// copy default index
 			InputStream indexStream = getClass().getResourceAsStream("/index.html");
 			FileUtils.copyStreamToFile(new RawInputStreamFacade(indexStream), new File(outputSite, this.indexName));
+			PhaseMetrics.current().copied(new File(outputSite, this.indexName));
 			indexStream.close();
 			File webFolder = new File(outputSite, "web");
 			if (!webFolder.exists()) {
@@ -737,6 +1262,7 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 			// copy default css
 			InputStream cssStream = getClass().getResourceAsStream("/web/" + this.cssName);
 			FileUtils.copyStreamToFile(new RawInputStreamFacade(cssStream), new File(webFolder, this.cssName));
+			PhaseMetrics.current().copied(new File(webFolder, this.cssName));
 			cssStream.close();
 		}
 	}
@@ -780,157 +1306,238 @@ public class GenerateRepositoryFacadeMojo extends AbstractTychoPackagingMojo {
 
 		jsonProperties.get("properties").set(sysProps);
 
+		ProvenanceGraph graph = this.upstreamBuildInfoGraphDepth > 0
+				? new ProvenanceGraph(getLog(), this::getProjectName)
+				: null;
+		List<UpstreamBuildInfoFetcher.Result> upstream;
 		try {
-			jsonProperties.get(UPSTREAM_ELEMENT).set(aggregateUpstreamMetadata(buildinfoFolder));
+			upstream = fetchUpstreamMetadata(buildinfoFolder, graph);
 		} catch (Exception ex) {
 			throw new MojoExecutionException("Could not get upstream metadata", ex);
 		}
 
+		Set<File> unreadable = new HashSet<>();
 		try {
-			// put buildinfo.json inside the target/buildinfo/ folder
-			FileUtils.fileWrite(new File(buildinfoFolder, BUILDINFO_JSON), jsonProperties.toJSONString(false));
-			// put a copy inside the target/repository/ folder (and site zip)
-			FileUtils.fileWrite(new File(outputRepository, BUILDINFO_JSON), jsonProperties.toJSONString(false));
+			writeBuildInfo(jsonProperties, upstream, unreadable, outputRepository, buildinfoFolder);
+			if (graph != null) {
+				writeBuildInfoGraph(graph, outputRepository, buildinfoFolder);
+			}
+			// upstream build info as downloaded, and what was written from it
+			PhaseMetrics.Step step = PhaseMetrics.current();
+			for (UpstreamBuildInfoFetcher.Result result : upstream) {
+				if (result.file != null) {
+					step.readFile(result.file);
+				}
+			}
+			for (File folder : new File[] { buildinfoFolder, outputRepository }) {
+				step.writtenFile(new File(folder, BUILDINFO_JSON));
+				if (graph != null) {
+					step.writtenFile(new File(folder, BUILDINFO_GRAPH_JSON));
+				}
+			}
+			for (UpstreamBuildInfoFetcher.Result result : upstream) {
+				if (result.file != null && !unreadable.contains(result.file)) {
+					writeUpstreamBuildinfoJSONFile(result, buildinfoFolder);
+				}
+			}
+		} finally {
+			for (UpstreamBuildInfoFetcher.Result result : upstream) {
+				if (result.file != null) {
+					result.file.delete();
+				}
+			}
+			if (graph != null) {
+				graph.deleteFiles();
+			}
+		}
+	}
+
+	/*
+	 * Writes buildinfo.json once, to both target/buildinfo/ and target/repository/
+	 */
+	private void writeBuildInfo(ModelNode jsonProperties, List<UpstreamBuildInfoFetcher.Result> upstream,
+			Set<File> unreadable, File outputRepository, File buildinfoFolder) throws MojoFailureException {
+		// put buildinfo.json inside the target/buildinfo/ folder
+		// and a copy inside the target/repository/ folder (and site zip)
+		try (OutputStream buildinfoOut = new FileOutputStream(new File(buildinfoFolder, BUILDINFO_JSON));
+				ReplacingOutputStream repositoryOut = new ReplacingOutputStream(
+						new File(outputRepository, BUILDINFO_JSON))) {
+			CountingOutputStream counter = new CountingOutputStream(new TeeOutputStream(buildinfoOut, repositoryOut));
+			try (Writer out = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8))) {
+				BuildInfoWriter json = new BuildInfoWriter(out);
+				json.beginObject(jsonProperties.keys().size() + 1);
+				for (Property property : jsonProperties.asPropertyList()) {
+					json.name(property.getName());
+					json.value(property.getValue());
+				}
+				json.name(UPSTREAM_ELEMENT);
+				writeUpstreamMetadata(json, upstream, unreadable, () -> {
+					out.flush();
+					return counter.getByteCount();
+				});
+				json.endObject();
+				out.flush();
+				repositoryOut.commit();
+			}
 		} catch (Exception ex) {
 			throw new MojoFailureException("Could not generate properties file", ex);
 		}
 	}
 
-	private ModelNode aggregateUpstreamMetadata(File buildinfoFolder) throws MojoFailureException {
-		List<?> repos = this.project.getRepositories();
-		ModelNode res = new ModelNode();
-		for (Object item : repos) {
-			org.apache.maven.model.Repository repo = (org.apache.maven.model.Repository) item;
-			if ("p2".equals(repo.getLayout())) {
-				String supposedBuildInfoURL = repo.getUrl();
-				if (!supposedBuildInfoURL.endsWith("/")) {
-					supposedBuildInfoURL += "/";
-				}
-				supposedBuildInfoURL += BUILDINFO_JSON;
-				URL upstreamBuildInfoURL = null;
-				InputStream in = null;
-				ModelNode obj = null;
-				try {
-					getLog().debug("Read JSON (1) from: " + supposedBuildInfoURL);
-					upstreamBuildInfoURL = new URL(supposedBuildInfoURL);
-					in = upstreamBuildInfoURL.openStream();
-					obj = ModelNode.fromJSONStream(in);
-					writeUpstreamBuildinfoJSONFile(obj, buildinfoFolder);
-				} catch (MalformedURLException ex) {
-					throw new MojoFailureException("Incorrect URL: " + upstreamBuildInfoURL, ex);
-				} catch (IOException ex) {
-					supposedBuildInfoURL = repo.getUrl();
-					if (fallbackToChild != null && !fallbackToChild.isEmpty()) {
-						supposedBuildInfoURL = repo.getUrl();
-						if (!supposedBuildInfoURL.endsWith("/")) {
-							supposedBuildInfoURL += "/";
-						}
-						if (!supposedBuildInfoURL.endsWith(fallbackToChild)) {
-							supposedBuildInfoURL += fallbackToChild;
-						}
-						if (!supposedBuildInfoURL.endsWith("/")) {
-							supposedBuildInfoURL += "/";
-						}
-						supposedBuildInfoURL += BUILDINFO_JSON;
-						try {
-							getLog().debug("Read JSON (2) from: " + supposedBuildInfoURL);
-							upstreamBuildInfoURL = new URL(supposedBuildInfoURL);
-							in = upstreamBuildInfoURL.openStream();
-							obj = ModelNode.fromJSONStream(in);
-							writeUpstreamBuildinfoJSONFile(obj, buildinfoFolder);
-						} catch (MalformedURLException ex2) {
-							throw new MojoFailureException("Incorrect URL: " + upstreamBuildInfoURL, ex);
-						} catch (IOException ex2) {
-							getLog().warn("Could not access build info at " + upstreamBuildInfoURL + " or "
-									+ upstreamBuildInfoURL.toString().replaceAll(fallbackToChild, ""));
-							res.get(repo.getUrl()).set("Build info file not accessible: " + ex.getMessage());
-						} finally {
-							IOUtils.closeQuietly(in);
-						}
-					} else {
-						getLog().warn("Could not access build info at " + upstreamBuildInfoURL
-								+ "; try setting <fallbackToChild>latest/all/repo</fallbackToChild> in your pom.xml");
-						res.get(repo.getUrl()).set("Build info file not accessible: " + ex.getMessage());
-					}
-				} finally {
-					IOUtils.closeQuietly(in);
-				}
-				if (obj != null) {
-					obj.remove(UPSTREAM_ELEMENT); // remove upstream of upstream as it would make a HUGE file
-					res.get(repo.getUrl()).set(obj);
+	/*
+	 * Writes buildinfo-graph.json, like buildinfo.json, to both target/buildinfo/ and target/repository/
+	 */
+	private void writeBuildInfoGraph(ProvenanceGraph graph, File outputRepository, File buildinfoFolder)
+			throws MojoFailureException {
+		try (OutputStream buildinfoOut = new FileOutputStream(new File(buildinfoFolder, BUILDINFO_GRAPH_JSON));
+				ReplacingOutputStream repositoryOut = new ReplacingOutputStream(
+						new File(outputRepository, BUILDINFO_GRAPH_JSON));
+				Writer out = new BufferedWriter(new OutputStreamWriter(new TeeOutputStream(buildinfoOut, repositoryOut),
+						StandardCharsets.UTF_8))) {
+			graph.write(out, getUpstreamProjection());
+			out.flush();
+			repositoryOut.commit();
+		} catch (IOException ex) {
+			throw new MojoFailureException("Could not generate " + BUILDINFO_GRAPH_JSON, ex);
+		}
+	}
+
+	/*
+	 * @param graph graph to walk from the direct upstream builds, or null
+	 */
+	private List<UpstreamBuildInfoFetcher.Result> fetchUpstreamMetadata(File buildinfoFolder, ProvenanceGraph graph)
+			throws MojoFailureException {
+		List<String> repositoryUrls = getUpstreamRepositoryUrls();
+		BuildInfoCache cache = null;
+		if (this.upstreamBuildInfoCache) {
+			File localRepository = this.session.getRepositorySession().getLocalRepository().getBasedir();
+			cache = new BuildInfoCache(new File(localRepository, ".cache/repository-utils/buildinfo"),
+					this.session.isOffline(), TimeUnit.DAYS.toMillis(this.upstreamBuildInfoCacheMaxAge));
+		}
+		UpstreamBuildInfoFetcher fetcher = new UpstreamBuildInfoFetcher(getLog(), cache, buildinfoFolder,
+				this.fallbackToChild, this.upstreamBuildInfoThreads, this.upstreamBuildInfoTimeout,
+				this.upstreamBuildInfoDeadline, graph != null);
+		List<UpstreamBuildInfoFetcher.Result> results;
+		try {
+			results = fetcher.fetch(repositoryUrls);
+			if (graph != null) {
+				graph.walk(fetcher, results, this.upstreamBuildInfoGraphDepth);
+			}
+		} catch (MalformedURLException ex) {
+			throw new MojoFailureException("Incorrect URL: " + ex.getMessage(), ex);
+		}
+		if (cache != null && !repositoryUrls.isEmpty()) {
+			getLog().info("Upstream build info cache: " + cache.getHits() + " hit(s), " + cache.getRevalidations()
+					+ " revalidated, " + cache.getMisses() + " miss(es)");
+		}
+		if (cache != null) {
+			// once the entries of this build were used, so that they are kept
+			try {
+				int evicted = cache.evict();
+				if (evicted > 0) {
+					getLog().debug("Evicted " + evicted + " file(s) from the upstream build info cache");
 				}
+			} catch (IOException ex) {
+				getLog().warn("Could not evict old upstream build info: " + ex.getMessage());
 			}
+		}
+		return results;
+	}
 
+	private List<String> getUpstreamRepositoryUrls() {
+		List<String> res = new ArrayList<>();
+		for (Object item : this.project.getRepositories()) {
+			org.apache.maven.model.Repository repo = (org.apache.maven.model.Repository) item;
+			if ("p2".equals(repo.getLayout())) {
+				res.add(repo.getUrl());
+			}
 		}
 		return res;
 	}
 
-	// write upstream buildinfo.json files into target/buildinfo/ folder
-	private void writeUpstreamBuildinfoJSONFile(ModelNode obj, File buildinfoFolder) throws MojoFailureException {
-		String projectName;
-		projectName = getProjectName(obj);
+	/*
+	 * Streams the upstream documents, keyed by repository URL, into the merged buildinfo.json
+	 */
+	private void writeUpstreamMetadata(BuildInfoWriter json, List<UpstreamBuildInfoFetcher.Result> upstream,
+			Set<File> unreadable, IOSupplier<Long> bytesWritten) throws IOException {
+		JsonProjection projection = getUpstreamProjection();
+		// same repository listed twice: like in a ModelNode, the last one wins
+		Map<String, UpstreamBuildInfoFetcher.Result> byRepository = new LinkedHashMap<>();
+		for (UpstreamBuildInfoFetcher.Result result : upstream) {
+			byRepository.put(result.repositoryUrl, result);
+		}
+		if (byRepository.isEmpty()) {
+			json.literal("null");
+			return;
+		}
+		int omitted = 0;
+		json.beginObject(byRepository.size());
+		for (UpstreamBuildInfoFetcher.Result result : byRepository.values()) {
+			json.name(result.repositoryUrl);
+			if (result.file == null) {
+				json.string("Build info file not accessible: " + result.error);
+				continue;
+			}
+			IOSupplier<Reader> source = () -> Files.newBufferedReader(result.file.toPath(), StandardCharsets.UTF_8);
+			try {
+				// read once to measure it, once to copy it
+				BuildInfoWriter.Measure measure = BuildInfoWriter.measure(source, projection);
+				if (this.buildInfoMaxBytes > 0
+						&& bytesWritten.get() + json.sizeOfCopy(measure) > this.buildInfoMaxBytes) {
+					json.string("Build info omitted: over the " + this.buildInfoMaxBytes + " bytes budget");
+					omitted++;
+					continue;
+				}
+				json.copy(source, measure);
+			} catch (IOException ex) {
+				getLog().warn("Could not read build info of " + result.repositoryUrl + ": " + ex.getMessage());
+				unreadable.add(result.file);
+				json.string("Build info file not accessible: " + ex.getMessage());
+			}
+		}
+		json.endObject();
+		if (omitted > 0) {
+			getLog().warn(omitted + " upstream build info(s) left out of " + BUILDINFO_JSON
+					+ " to keep it under buildInfoMaxBytes=" + this.buildInfoMaxBytes);
+		}
+	}
+
+	private JsonProjection getUpstreamProjection() {
+		// remove upstream of upstream as it would make a HUGE file
+		return this.upstreamBuildInfoFields != null && !this.upstreamBuildInfoFields.isEmpty()
+				? JsonProjection.of(this.upstreamBuildInfoFields)
+				: JsonProjection.allBut(UPSTREAM_ELEMENT);
+	}
+
+	// move upstream buildinfo.json files, as downloaded, into target/buildinfo/ folder
+	private void writeUpstreamBuildinfoJSONFile(UpstreamBuildInfoFetcher.Result result, File buildinfoFolder)
+			throws MojoFailureException {
+		String projectName = getProjectName(result.projectUrl);
 		if (projectName != null) {
-			String upstreamJSONFile = buildinfoFolder.toString() + File.separator + "buildinfo_" + projectName
-					+ ".json";
+			File upstreamJSONFile = new File(buildinfoFolder, "buildinfo_" + projectName + ".json");
 			getLog().debug("Save to: " + upstreamJSONFile);
 			try {
-				buildinfoFolder.mkdirs();
-				FileUtils.fileWrite(new File(upstreamJSONFile), obj.toJSONString(false));
-			} catch (Exception ex) {
+				Files.move(result.file.toPath(), upstreamJSONFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException ex) {
 				throw new MojoFailureException("Could not save JSON to " + upstreamJSONFile, ex);
 			}
 		}
 	}
 
-	// for a given JSON object, find /revision/knownReferences[0]/url, then extract the project name from the git repo URL
-	private String getProjectName(ModelNode obj) {
-		String projectURL = null;
-		String projectName = null;
-		for (Property prop : obj.get("revision").asPropertyList()) {
-			if (projectURL == null && prop.getName().equals("knownReferences") && prop.getValue().isDefined()) { // this is a ModelNode; want the zeroth named key "url"
-				projectURL = prop.getValue().asList().get(0).get("url").asString();
-				getLog().debug("Upstream repo: " + projectURL);
-				// JBIDE-22808 support both git://github.com/jbosstools/jbosstools-portlet.git and https://github.com/jbosstools/jbosstools-arquillian formats
-				projectName = projectURL.replaceAll(".+/([^/]+).git", "$1").replaceAll(".+/([^/]+)", "$1");
-				getLog().debug("Upstream proj: " + projectName);
-			}
+	// for the /revision/knownReferences[0]/url of a buildinfo.json, extract the project name from the git repo URL
+	private String getProjectName(String projectURL) {
+		if (projectURL == null) {
+			return null;
 		}
+		getLog().debug("Upstream repo: " + projectURL);
+		// JBIDE-22808 support both git://github.com/jbosstools/jbosstools-portlet.git and https://github.com/jbosstools/jbosstools-arquillian formats
+		String projectName = projectURL.replaceAll(".+/([^/]+).git", "$1").replaceAll(".+/([^/]+)", "$1");
+		getLog().debug("Upstream proj: " + projectName);
 		return projectName;
 	}
 
 	private ModelNode createRevisionObject() throws IOException, FileNotFoundException {
-		ModelNode res = new ModelNode();
-		File repoRoot = findRepoRoot(this.project.getBasedir());
-		FileRepositoryBuilder builder = new FileRepositoryBuilder();
-		Repository gitRepo = builder.setGitDir(new File(repoRoot, ".git"))
-				.readEnvironment() // scan environment GIT_* variables
-				.findGitDir() // scan up the file system tree
-				.build();
-		Ref head = gitRepo.exactRef(Constants.HEAD);
-		res.get("HEAD").set(head.getObjectId().getName());
-		if (head.getTarget() != null && head.getTarget().getName() != null) {
-			res.get("currentBranch").set(head.getTarget().getName());
-		}
-		
-		ModelNode knownReferences = new ModelNode();
-		for (Ref entry : gitRepo.getRefDatabase().getRefs()) {
-			if (entry.getName().startsWith(Constants.R_REMOTES)
-					&& entry.getObjectId().getName().equals(head.getObjectId().getName())) {
-				ModelNode reference = new ModelNode();
-				String remoteName = entry.getName().substring(Constants.R_REMOTES.length());
-				remoteName = remoteName.substring(0, remoteName.indexOf('/'));
-				String remoteUrl = gitRepo.getConfig().getString("remote", remoteName, "url");
-				String branchName = entry.getName().substring(Constants.R_REMOTES.length() + 1 + remoteName.length());
-				reference.get("name").set(remoteName);
-				//remote url on github action is not properly retrieved because of detached HEAD and pull request, make this workaround to pass test
-				if (remoteUrl != null)
-					reference.get("url").set(remoteUrl);
-				reference.get("ref").set(branchName);
-				knownReferences.add(reference);
-			}
-		}
-		res.get("knownReferences").set(knownReferences);
-		return res;
+		return GitRevisions.revisionObject(this.session, findRepoRoot(this.project.getBasedir()));
 	}
 
 	protected static File findRepoRoot(File repoRoot) throws FileNotFoundException {
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Revision of a Git working tree, as recorded in buildinfo.json, cached for the
+ * lifetime of the Maven session so that the eclipse-repository modules of a
+ * reactor sharing a Git root only read its references once.
+ */
+final class GitRevisions {
+
+	private GitRevisions() {
+	}
+
+	/**
+	 * @param session
+	 *            current session, holding the cache; if null, the revision is
+	 *            read without caching
+	 * @param repoRoot
+	 *            folder holding the .git folder
+	 * @return HEAD, the current branch and the remote branches at HEAD
+	 */
+	static ModelNode revisionObject(MavenSession session, File repoRoot) throws IOException {
+		String key = GitRevisions.class.getName() + ':' + repoRoot.getCanonicalPath();
+		SessionData data = session != null && session.getRepositorySession() != null
+				? session.getRepositorySession().getData()
+				: null;
+		ModelNode revision = data != null ? (ModelNode) data.get(key) : null;
+		if (revision == null) {
+			revision = read(repoRoot);
+			if (data != null && !data.set(key, null, revision)) {
+				// read concurrently by another module
+				revision = (ModelNode) data.get(key);
+			}
+		}
+		// callers may modify what they get
+		return revision.clone();
+	}
+
+	private static ModelNode read(File repoRoot) throws IOException {
+		ModelNode res = new ModelNode();
+		FileRepositoryBuilder builder = new FileRepositoryBuilder();
+		try (Repository gitRepo = builder.setGitDir(new File(repoRoot, ".git"))
+				.readEnvironment() // scan environment GIT_* variables
+				.findGitDir() // scan up the file system tree
+				.build()) {
+			Ref head = gitRepo.exactRef(Constants.HEAD);
+			ObjectId headId = head.getObjectId();
+			res.get("HEAD").set(headId.getName());
+			if (head.getTarget() != null && head.getTarget().getName() != null) {
+				res.get("currentBranch").set(head.getTarget().getName());
+			}
+
+			// only remote branches, leaving out tags and local branches, and
+			// compared by id rather than by name
+			ModelNode knownReferences = new ModelNode();
+			for (Ref entry : gitRepo.getRefDatabase().getRefsByPrefix(Constants.R_REMOTES)) {
+				if (!headId.equals(entry.getObjectId())) {
+					continue;
+				}
+				ModelNode reference = new ModelNode();
+				String remoteName = entry.getName().substring(Constants.R_REMOTES.length());
+				if (remoteName.indexOf('/') < 0) {
+					continue;
+				}
+				remoteName = remoteName.substring(0, remoteName.indexOf('/'));
+				String remoteUrl = gitRepo.getConfig().getString("remote", remoteName, "url");
+				String branchName = entry.getName().substring(Constants.R_REMOTES.length() + 1 + remoteName.length());
+				reference.get("name").set(remoteName);
+				//remote url on github action is not properly retrieved because of detached HEAD and pull request, make this workaround to pass test
+				if (remoteUrl != null)
+					reference.get("url").set(remoteUrl);
+				reference.get("ref").set(branchName);
+				knownReferences.add(reference);
+			}
+			res.get("knownReferences").set(knownReferences);
+		}
+		return res;
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Selection of the fields of a JSON document to keep, from dot separated
+ * paths such as {@code revision.HEAD} or {@code properties.BUILD_ALIAS}. A
+ * path keeps the whole value found there; the objects on the way only keep
+ * the selected fields, and are left out when none of them is present. The
+ * elements of an array are all projected the same way.
+ */
+class JsonProjection {
+
+	static final JsonProjection ALL = new JsonProjection(null, Collections.emptySet());
+
+	/** selected fields, or null when all of them are kept */
+	private final Map<String, JsonProjection> fields;
+	private final Set<String> excluded;
+
+	private JsonProjection(Map<String, JsonProjection> fields, Set<String> excluded) {
+		this.fields = fields;
+		this.excluded = excluded;
+	}
+
+	/**
+	 * @return a projection keeping everything but the given top level fields
+	 */
+	static JsonProjection allBut(String... excluded) {
+		return new JsonProjection(null, new HashSet<>(Arrays.asList(excluded)));
+	}
+
+	/**
+	 * @return a projection keeping only the given paths, or everything when
+	 *         there is none
+	 */
+	static JsonProjection of(Collection<String> paths) {
+		if (paths == null || paths.isEmpty()) {
+			return ALL;
+		}
+		JsonProjection res = new JsonProjection(new LinkedHashMap<>(), Collections.emptySet());
+		for (String path : paths) {
+			JsonProjection node = res;
+			String[] segments = path.trim().split("\\.");
+			for (int i = 0; i < segments.length; i++) {
+				if (node.isAll()) {
+					// a shorter path already keeps all of it
+					break;
+				}
+				if (i == segments.length - 1) {
+					node.fields.put(segments[i], ALL);
+				} else {
+					node = node.fields.computeIfAbsent(segments[i],
+							name -> new JsonProjection(new LinkedHashMap<>(), Collections.emptySet()));
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return the projection of the given field, or null if it is not kept
+	 */
+	JsonProjection field(String name) {
+		if (this.excluded.contains(name)) {
+			return null;
+		}
+		return this.fields == null ? ALL : this.fields.get(name);
+	}
+
+	/**
+	 * @return whether values are kept whole
+	 */
+	boolean isAll() {
+		return this.fields == null && this.excluded.isEmpty();
+	}
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Minimal pull tokenizer for JSON documents such as buildinfo.json, so that a
+ * few values can be picked out of a document, or the document copied, without
+ * building a tree of it. Separators are not validated: the documents read are
+ * expected to be well formed.
+ */
+class JsonTokenizer {
+
+	enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, LITERAL, END_DOCUMENT
+	}
+
+	private final Reader in;
+	private final Deque<Boolean> objects = new ArrayDeque<>();
+	private int peeked = -2;
+	private boolean expectName = false;
+	private String text;
+
+	JsonTokenizer(Reader in) {
+		this.in = in;
+	}
+
+	Token next() throws IOException {
+		int c = nextNonWhitespace();
+		while (c == ',' || c == ':') {
+			if (c == ',' && Boolean.TRUE.equals(this.objects.peek())) {
+				this.expectName = true;
+			}
+			c = nextNonWhitespace();
+		}
+		this.text = null;
+		switch (c) {
+		case -1:
+			return Token.END_DOCUMENT;
+		case '{':
+			this.objects.push(Boolean.TRUE);
+			this.expectName = true;
+			return Token.BEGIN_OBJECT;
+		case '}':
+			checkOpen();
+			this.objects.pop();
+			this.expectName = false;
+			return Token.END_OBJECT;
+		case '[':
+			this.objects.push(Boolean.FALSE);
+			this.expectName = false;
+			return Token.BEGIN_ARRAY;
+		case ']':
+			checkOpen();
+			this.objects.pop();
+			return Token.END_ARRAY;
+		case '"':
+			this.text = readString();
+			if (this.expectName) {
+				this.expectName = false;
+				return Token.NAME;
+			}
+			return Token.STRING;
+		default:
+			this.text = readLiteral(c);
+			return Token.LITERAL;
+		}
+	}
+
+	/**
+	 * @return the unescaped text of a {@link Token#NAME} or
+	 *         {@link Token#STRING}, or the text of a {@link Token#LITERAL}
+	 *         (number, true, false or null) as written
+	 */
+	String getText() {
+		return this.text;
+	}
+
+	/**
+	 * @return the number of objects and arrays the tokenizer is in
+	 */
+	int getDepth() {
+		return this.objects.size();
+	}
+
+	/**
+	 * Skips the next value, typically the one following the {@link Token#NAME}
+	 * just read.
+	 */
+	void skipValue() throws IOException {
+		skip(0);
+	}
+
+	/**
+	 * Skips the rest of the object or array the tokenizer is in, up to and
+	 * including its end.
+	 */
+	void skipContainer() throws IOException {
+		skip(1);
+	}
+
+	private void skip(int level) throws IOException {
+		do {
+			switch (next()) {
+			case BEGIN_OBJECT:
+			case BEGIN_ARRAY:
+				level++;
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				level--;
+				break;
+			case END_DOCUMENT:
+				return;
+			default:
+			}
+		} while (level > 0);
+	}
+
+	private void checkOpen() throws IOException {
+		if (this.objects.isEmpty()) {
+			throw new IOException("Unbalanced JSON document");
+		}
+	}
+
+	private int read() throws IOException {
+		if (this.peeked != -2) {
+			int c = this.peeked;
+			this.peeked = -2;
+			return c;
+		}
+		return this.in.read();
+	}
+
+	private int nextNonWhitespace() throws IOException {
+		int c = read();
+		while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+			c = read();
+		}
+		return c;
+	}
+
+	private String readString() throws IOException {
+		StringBuilder res = new StringBuilder();
+		while (true) {
+			int c = this.in.read();
+			if (c == -1) {
+				throw new IOException("Unterminated JSON string");
+			} else if (c == '"') {
+				return res.toString();
+			} else if (c != '\\') {
+				res.append((char) c);
+				continue;
+			}
+			c = this.in.read();
+			switch (c) {
+			case 'b':
+				res.append('\b');
+				break;
+			case 'f':
+				res.append('\f');
+				break;
+			case 'n':
+				res.append('\n');
+				break;
+			case 'r':
+				res.append('\r');
+				break;
+			case 't':
+				res.append('\t');
+				break;
+			case 'u':
+				char[] hex = new char[4];
+				for (int i = 0; i < 4; i++) {
+					int h = this.in.read();
+					if (h == -1) {
+						throw new IOException("Unterminated JSON string");
+					}
+					hex[i] = (char) h;
+				}
+				try {
+					res.append((char) Integer.parseInt(new String(hex), 16));
+				} catch (NumberFormatException ex) {
+					throw new IOException("Invalid escape \\u" + new String(hex), ex);
+				}
+				break;
+			case -1:
+				throw new IOException("Unterminated JSON string");
+			default:
+				// \" \\ \/
+				res.append((char) c);
+			}
+		}
+	}
+
+	private String readLiteral(int first) throws IOException {
+		StringBuilder res = new StringBuilder();
+		int c = first;
+		while (c != -1 && c != ',' && c != ':' && c != '}' && c != ']' && c != ' ' && c != '\t' && c != '\n'
+				&& c != '\r') {
+			res.append((char) c);
+			c = this.in.read();
+		}
+		this.peeked = c;
+		return res.toString();
+	}
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.io.function.IOSupplier;
+
+/**
+ * Single pass rewrite of a p2 metadata file (content.xml, artifacts.xml).
+ */
+interface MetadataRewriter {
+
+	/**
+	 * @param source opens the original document; may be called more than once
+	 *               if the rewriter needs a first pass to collect information
+	 * @param out    where to write the rewritten document; not closed
+	 */
+	void rewrite(IOSupplier<InputStream> source, OutputStream out) throws IOException, XMLStreamException;
+
+}
@@ -0,0 +1,379 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Minimal streaming XML serializer writing in the same style as p2's own
+ * metadata writer (single quoted attributes in document order, p2 character
+ * escaping, self-closing empty elements), so that an unmodified content.xml or
+ * artifacts.xml copied through it comes out as it went in.
+ *
+ * Whitespace-only text between elements is held back until the next tag so
+ * that callers can drop an element together with its indentation, or insert
+ * new elements before it.
+ */
+class P2XmlWriter implements Closeable {
+
+	private static final String INDENT = "  ";
+
+	private final Writer out;
+	private boolean startTagOpen = false;
+	private int depth = 0;
+	private String pendingWhitespace = null;
+	private String heldWhitespace = null;
+	private boolean afterInsert = false;
+
+	P2XmlWriter(OutputStream out) {
+		this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+	}
+
+	/**
+	 * @return an {@link XMLInputFactory} suitable to read p2 metadata: no DTD,
+	 *         no external entities, coalesced text
+	 */
+	static XMLInputFactory newInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newFactory();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		return factory;
+	}
+
+	/**
+	 * @return the attributes of the current start element, in document order
+	 */
+	static Map<String, String> attributes(XMLStreamReader reader) {
+		Map<String, String> res = new LinkedHashMap<>();
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			res.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		}
+		return res;
+	}
+
+	/**
+	 * Writes the event the reader is currently positioned on.
+	 */
+	void copyEvent(XMLStreamReader reader) throws IOException {
+		switch (reader.getEventType()) {
+		case XMLStreamConstants.START_DOCUMENT:
+			declaration(reader.getVersion(), reader.standaloneSet() ? reader.isStandalone() : null);
+			break;
+		case XMLStreamConstants.PROCESSING_INSTRUCTION:
+			processingInstruction(reader.getPITarget(), reader.getPIData());
+			break;
+		case XMLStreamConstants.COMMENT:
+			comment(reader.getText());
+			break;
+		case XMLStreamConstants.START_ELEMENT:
+			startElement(reader.getLocalName(), attributes(reader));
+			break;
+		case XMLStreamConstants.END_ELEMENT:
+			endElement(reader.getLocalName());
+			break;
+		case XMLStreamConstants.CHARACTERS:
+		case XMLStreamConstants.CDATA:
+		case XMLStreamConstants.SPACE:
+			characters(reader.getText());
+			break;
+		default:
+			// DTD, entity references and end of document have nothing to write
+		}
+	}
+
+	/**
+	 * Copies the element the reader is positioned on, including its children,
+	 * and leaves the reader on its end tag.
+	 */
+	void copyElement(XMLStreamReader reader) throws IOException, XMLStreamException {
+		int level = 0;
+		while (true) {
+			copyEvent(reader);
+			if (reader.isStartElement()) {
+				level++;
+			} else if (reader.isEndElement() && --level == 0) {
+				return;
+			}
+			reader.next();
+		}
+	}
+
+	/**
+	 * Skips the element the reader is positioned on, including its children,
+	 * together with the whitespace that was preceding it.
+	 */
+	void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		pendingWhitespace = null;
+		int level = 1;
+		while (level > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				level++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				level--;
+			}
+		}
+	}
+
+	void declaration(String version, Boolean standalone) throws IOException {
+		out.write("<?xml version='");
+		out.write(version != null ? version : "1.0");
+		out.write("' encoding='UTF-8'");
+		if (standalone != null) {
+			out.write(" standalone='");
+			out.write(standalone ? "yes" : "no");
+			out.write('\'');
+		}
+		out.write("?>\n");
+	}
+
+	void processingInstruction(String target, String data) throws IOException {
+		flushPending();
+		out.write("<?");
+		out.write(target);
+		if (data != null && !data.isEmpty()) {
+			out.write(' ');
+			out.write(data);
+		}
+		out.write("?>");
+		if (depth == 0) {
+			out.write('\n');
+		}
+	}
+
+	void comment(String text) throws IOException {
+		flushPending();
+		out.write("<!--");
+		out.write(text);
+		out.write("-->");
+		if (depth == 0) {
+			out.write('\n');
+		}
+	}
+
+	void startElement(String name, Map<String, String> attributes) throws IOException {
+		flushPending();
+		writeStartTag(name, attributes);
+		depth++;
+	}
+
+	private void writeStartTag(String name, Map<String, String> attributes) throws IOException {
+		out.write('<');
+		out.write(name);
+		for (Entry<String, String> attribute : attributes.entrySet()) {
+			out.write(' ');
+			out.write(attribute.getKey());
+			out.write("='");
+			escape(attribute.getValue());
+			out.write('\'');
+		}
+		startTagOpen = true;
+	}
+
+	void endElement(String name) throws IOException {
+		depth--;
+		if (startTagOpen) {
+			// element had no content at all
+			pendingWhitespace = null;
+			heldWhitespace = null;
+			startTagOpen = false;
+			out.write("/>");
+		} else {
+			if (afterInsert && heldWhitespace == null && pendingWhitespace == null) {
+				newLine(depth);
+			}
+			flushPending();
+			out.write("</");
+			out.write(name);
+			out.write('>');
+		}
+		afterInsert = false;
+		if (depth == 0) {
+			out.write('\n');
+		}
+	}
+
+	/**
+	 * Starts an element spliced into the stream, on its own line indented for
+	 * the current depth. The indentation held back for the next original tag is
+	 * kept for it.
+	 */
+	void insertStartElement(String name, Map<String, String> attributes) throws IOException {
+		holdPending();
+		newLine(depth);
+		writeStartTag(name, attributes);
+		depth++;
+	}
+
+	/**
+	 * Ends an element started with {@link #insertStartElement(String, Map)}.
+	 */
+	void insertEndElement(String name) throws IOException {
+		depth--;
+		if (startTagOpen) {
+			startTagOpen = false;
+			out.write("/>");
+		} else {
+			newLine(depth);
+			out.write("</");
+			out.write(name);
+			out.write('>');
+		}
+		afterInsert = true;
+	}
+
+	/**
+	 * Writes an empty element spliced into the stream on its own line.
+	 */
+	void insertEmptyElement(String name, Map<String, String> attributes) throws IOException {
+		insertStartElement(name, attributes);
+		insertEndElement(name);
+	}
+
+	private void newLine(int level) throws IOException {
+		out.write('\n');
+		for (int i = 0; i < level; i++) {
+			out.write(INDENT);
+		}
+	}
+
+	private void holdPending() throws IOException {
+		closeStartTag();
+		if (pendingWhitespace != null) {
+			heldWhitespace = heldWhitespace == null ? pendingWhitespace : heldWhitespace + pendingWhitespace;
+			pendingWhitespace = null;
+		}
+	}
+
+	void characters(String text) throws IOException {
+		if (text.isEmpty() || depth == 0) {
+			return;
+		}
+		if (isWhitespace(text)) {
+			pendingWhitespace = pendingWhitespace == null ? text : pendingWhitespace + text;
+			return;
+		}
+		flushPending();
+		// keep leading and trailing indentation as is, escape the actual text
+		// like p2 does
+		int start = 0;
+		while (start < text.length() && isWhitespace(text.charAt(start))) {
+			start++;
+		}
+		int end = text.length();
+		while (end > start && isWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+		out.write(text, 0, start);
+		escape(text.substring(start, end));
+		out.write(text, end, text.length() - end);
+	}
+
+	private void flushPending() throws IOException {
+		closeStartTag();
+		afterInsert = false;
+		if (heldWhitespace != null) {
+			out.write(heldWhitespace);
+			heldWhitespace = null;
+		}
+		if (pendingWhitespace != null) {
+			out.write(pendingWhitespace);
+			pendingWhitespace = null;
+		}
+	}
+
+	private void closeStartTag() throws IOException {
+		if (startTagOpen) {
+			out.write('>');
+			startTagOpen = false;
+		}
+	}
+
+	private void escape(String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			String replacement = getReplacement(c);
+			if (replacement != null) {
+				out.write('&');
+				out.write(replacement);
+				out.write(';');
+			} else {
+				out.write(c);
+			}
+		}
+	}
+
+	// same replacements as org.eclipse.equinox.internal.p2.persistence.XMLWriter
+	private static String getReplacement(char c) {
+		switch (c) {
+		case '<':
+			return "lt";
+		case '>':
+			return "gt";
+		case '"':
+			return "quot";
+		case '\'':
+			return "apos";
+		case '&':
+			return "amp";
+		case '\r':
+			return "#xD";
+		case '\n':
+			return "#xA";
+		case '\t':
+			return "#x9";
+		default:
+			return null;
+		}
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	private static boolean isWhitespace(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (!isWhitespace(text.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	void flush() throws IOException {
+		flushPending();
+		out.flush();
+	}
+
+	/**
+	 * Flushes without closing the underlying stream, so that the caller can
+	 * still close its zip entry.
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+}
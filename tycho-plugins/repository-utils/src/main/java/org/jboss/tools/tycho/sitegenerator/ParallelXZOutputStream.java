@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.UnsupportedOptionsException;
+import org.tukaani.xz.XZOutputStream;
+
+/**
+ * XZ compressor splitting its input in fixed size blocks that are compressed
+ * independently on a pool of threads, then written in order as concatenated
+ * .xz streams. Concatenated streams are valid .xz data: xz(1) and
+ * {@link org.tukaani.xz.XZInputStream}, which p2 uses to read .xml.xz
+ * metadata, decompress them as one, and a reader can also decompress the
+ * streams in parallel.
+ *
+ * At most twice as many blocks as threads are in flight, so memory use is
+ * bounded by the block size and thread count, not by the input size.
+ */
+class ParallelXZOutputStream extends OutputStream {
+
+	private final OutputStream out;
+	private final LZMA2Options options;
+	private final int blockSize;
+	private final int maxPendingBlocks;
+	private final ExecutorService executor;
+	private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+	private byte[] block;
+	private int blockLength = 0;
+	private boolean closed = false;
+
+	/**
+	 * @param out       where to write the compressed data; closed with this
+	 *                  stream
+	 * @param preset    XZ preset, from 0 (fastest) to 9 (smallest)
+	 * @param blockSize size of the uncompressed blocks compressed in parallel
+	 * @param threads   number of compressing threads
+	 */
+	ParallelXZOutputStream(OutputStream out, int preset, int blockSize, int threads)
+			throws UnsupportedOptionsException {
+		this.out = out;
+		this.options = new LZMA2Options(preset);
+		// a dictionary larger than a block is only wasted memory
+		this.options.setDictSize(Math.max(LZMA2Options.DICT_SIZE_MIN, Math.min(this.options.getDictSize(), blockSize)));
+		this.blockSize = blockSize;
+		this.maxPendingBlocks = 2 * threads;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "xz-compressor-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.block = new byte[blockSize];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		while (len > 0) {
+			int n = Math.min(len, blockSize - blockLength);
+			System.arraycopy(b, off, block, blockLength, n);
+			blockLength += n;
+			off += n;
+			len -= n;
+			if (blockLength == blockSize) {
+				submitBlock();
+			}
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		final byte[] data = block;
+		final int length = blockLength;
+		pendingBlocks.add(executor.submit(() -> compress(data, length)));
+		block = new byte[blockSize];
+		blockLength = 0;
+		while (pendingBlocks.size() >= maxPendingBlocks) {
+			writeFirstPendingBlock();
+		}
+	}
+
+	private byte[] compress(byte[] data, int length) throws IOException {
+		ByteArrayOutputStream res = new ByteArrayOutputStream(length / 4 + 64);
+		try (XZOutputStream xz = new XZOutputStream(res, options)) {
+			xz.write(data, 0, length);
+		}
+		return res.toByteArray();
+	}
+
+	private void writeFirstPendingBlock() throws IOException {
+		try {
+			out.write(pendingBlocks.removeFirst().get());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing");
+		} catch (ExecutionException ex) {
+			throw new IOException("Could not compress block", ex.getCause());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (blockLength > 0 || pendingBlocks.isEmpty()) {
+				// an empty input still has to produce one valid .xz stream
+				submitBlock();
+			}
+			while (!pendingBlocks.isEmpty()) {
+				writeFirstPendingBlock();
+			}
+		} finally {
+			executor.shutdownNow();
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.function.IOSupplier;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Fingerprints of the phases of a mojo, recorded in a folder of the build
+ * directory, so that a phase can be skipped when neither its inputs
+ * (configuration, source files) nor the outputs it left in the build directory
+ * changed since its last run, and none of the phases it depends on runs.
+ *
+ * Outputs are fingerprinted once all phases ran, as the next run will find
+ * them.
+ */
+class PhaseFingerprints {
+
+	/**
+	 * SHA-256 of a sequence of named values and files.
+	 */
+	static class Fingerprint {
+		private final MessageDigest digest;
+
+		Fingerprint() {
+			try {
+				this.digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+
+		Fingerprint value(String name, Object value) {
+			update(name);
+			update(String.valueOf(value));
+			return this;
+		}
+
+		/**
+		 * Adds the content of a file, or that it is missing.
+		 */
+		Fingerprint file(File file) throws IOException {
+			update(file.getPath());
+			if (!file.isFile()) {
+				update("missing");
+				return this;
+			}
+			try (InputStream in = new FileInputStream(file)) {
+				content(in);
+			}
+			return this;
+		}
+
+		/**
+		 * Adds the content of a class path resource.
+		 */
+		Fingerprint resource(String name) throws IOException {
+			update(name);
+			try (InputStream in = PhaseFingerprints.class.getResourceAsStream(name)) {
+				if (in == null) {
+					throw new FileNotFoundException(name);
+				}
+				content(in);
+			}
+			return this;
+		}
+
+		/**
+		 * Adds the relative paths of the files under a folder or of a single
+		 * file, with their content or, when it is too large to be read every
+		 * time, their size and modification time.
+		 */
+		Fingerprint tree(File root, boolean content) throws IOException {
+			update(root.getPath());
+			if (!root.exists()) {
+				update("missing");
+				return this;
+			}
+			List<Path> files;
+			try (Stream<Path> walk = Files.walk(root.toPath())) {
+				files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+			}
+			for (Path file : files) {
+				update(root.toPath().relativize(file).toString());
+				if (content) {
+					try (InputStream in = Files.newInputStream(file)) {
+						content(in);
+					}
+				} else {
+					update(Files.size(file) + "@" + Files.getLastModifiedTime(file).toMillis());
+				}
+			}
+			return this;
+		}
+
+		private void content(InputStream in) throws IOException {
+			byte[] buffer = new byte[8192];
+			int read;
+			long size = 0;
+			while ((read = in.read(buffer)) != -1) {
+				this.digest.update(buffer, 0, read);
+				size += read;
+			}
+			update(Long.toString(size));
+		}
+
+		private void update(String text) {
+			this.digest.update(text.getBytes(StandardCharsets.UTF_8));
+			this.digest.update((byte) 0);
+		}
+
+		String get() {
+			return String.format("%064x", new BigInteger(1, this.digest.digest()));
+		}
+	}
+
+	private static final String INPUTS = "inputs";
+	private static final String OUTPUTS = "outputs";
+
+	private final File folder;
+	private final Log log;
+	private final Set<String> upToDate = new HashSet<>();
+	/** phases to run, with the fingerprint of their inputs */
+	private final Map<String, String> inputs = new LinkedHashMap<>();
+	private final Map<String, IOSupplier<Fingerprint>> outputs = new LinkedHashMap<>();
+
+	PhaseFingerprints(File folder, Log log) {
+		this.folder = folder;
+		this.log = log;
+	}
+
+	/**
+	 * @return the phase to run: the given one, or one doing nothing if the
+	 *         phase is up to date
+	 */
+	PhaseScheduler.Phase check(String name, IOSupplier<Fingerprint> inputs, IOSupplier<Fingerprint> outputs,
+			PhaseScheduler.Phase phase, String... dependencies) throws IOException {
+		String currentInputs = inputs.get().get();
+		boolean current = true;
+		for (String dependency : dependencies) {
+			current &= this.upToDate.contains(dependency);
+		}
+		if (current) {
+			Properties recorded = load(name);
+			current = currentInputs.equals(recorded.getProperty(INPUTS))
+					&& outputs.get().get().equals(recorded.getProperty(OUTPUTS));
+		}
+		if (current) {
+			this.upToDate.add(name);
+			return () -> this.log.info("Skipping " + name + ": inputs and outputs unchanged since the last build");
+		}
+		// a failed run leaves no fingerprint behind
+		getFile(name).delete();
+		this.inputs.put(name, currentInputs);
+		this.outputs.put(name, outputs);
+		return phase;
+	}
+
+	/**
+	 * Records the fingerprints of the phases which ran.
+	 */
+	void record() throws IOException {
+		this.folder.mkdirs();
+		for (Map.Entry<String, String> phase : this.inputs.entrySet()) {
+			Properties properties = new Properties();
+			properties.setProperty(INPUTS, phase.getValue());
+			properties.setProperty(OUTPUTS, this.outputs.get(phase.getKey()).get().get());
+			try (OutputStream out = new FileOutputStream(getFile(phase.getKey()))) {
+				properties.store(out, null);
+			}
+		}
+	}
+
+	int getSkipped() {
+		return this.upToDate.size();
+	}
+
+	private Properties load(String name) throws IOException {
+		Properties res = new Properties();
+		File file = getFile(name);
+		if (file.isFile()) {
+			try (InputStream in = new FileInputStream(file)) {
+				res.load(in);
+			}
+		}
+		return res;
+	}
+
+	private File getFile(String name) {
+		return new File(this.folder, name + ".properties");
+	}
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Wall time, bytes read and written, and peak heap growth of the steps of a
+ * mojo. Steps report their I/O to {@link #current()}, the innermost step running
+ * on the calling thread; a step run several times adds up. The time of a step
+ * nested in another one only counts for the nested step, so that the times of
+ * the steps of a thread add up to its total.
+ *
+ * The heap is shared: its peak usage is only reset when no other step is being
+ * measured, so when steps are nested or run concurrently, the peak growth of
+ * each one may also include what the others allocated since the first of them
+ * started. It is never under-reported.
+ */
+class PhaseMetrics {
+
+	interface Measured<T> {
+		T run() throws MojoExecutionException, MojoFailureException;
+	}
+
+	/**
+	 * Accumulated metrics of one step.
+	 */
+	static class Step {
+		private final String name;
+		private final AtomicLong nanos = new AtomicLong();
+		private final AtomicLong read = new AtomicLong();
+		private final AtomicLong written = new AtomicLong();
+		private final AtomicLong peakHeapDelta = new AtomicLong();
+
+		private Step(String name) {
+			this.name = name;
+		}
+
+		void read(long bytes) {
+			this.read.addAndGet(bytes);
+		}
+
+		void written(long bytes) {
+			this.written.addAndGet(bytes);
+		}
+
+		/**
+		 * Counts a file read or written as a whole, if it exists.
+		 */
+		void readFile(File file) {
+			read(size(file));
+		}
+
+		void writtenFile(File file) {
+			written(size(file));
+		}
+
+		/**
+		 * Counts a file copied as a whole, read once and written once.
+		 */
+		void copied(File file) {
+			long size = size(file);
+			read(size);
+			written(size);
+		}
+
+		InputStream countRead(InputStream in) {
+			return new ProxyInputStream(in) {
+				@Override
+				protected void afterRead(int n) {
+					if (n > 0) {
+						Step.this.read(n);
+					}
+				}
+			};
+		}
+
+		OutputStream countWritten(OutputStream out) {
+			return new ProxyOutputStream(out) {
+				@Override
+				protected void beforeWrite(int n) {
+					Step.this.written(n);
+				}
+			};
+		}
+	}
+
+	/** stands for the step when none is running, and counts nothing */
+	private static final Step NONE = new Step("none") {
+		@Override
+		void read(long bytes) {
+		}
+
+		@Override
+		void written(long bytes) {
+		}
+	};
+
+	/**
+	 * A step being measured on a thread.
+	 */
+	private static class Frame {
+		private final Step step;
+		private final Frame parent;
+		/** time spent in the steps nested in this one */
+		private long nestedNanos;
+
+		private Frame(Step step, Frame parent) {
+			this.step = step;
+			this.parent = parent;
+		}
+	}
+
+	private static final ThreadLocal<Frame> CURRENT = new ThreadLocal<>();
+
+	private final Map<String, Step> steps = new LinkedHashMap<>();
+	private final long start = System.nanoTime();
+	/** steps being measured, on all threads */
+	private final AtomicInteger measuring = new AtomicInteger();
+
+	/**
+	 * @return the step running on the calling thread, or one counting nothing
+	 */
+	static Step current() {
+		Frame frame = CURRENT.get();
+		return frame != null ? frame.step : NONE;
+	}
+
+	void run(String name, PhaseScheduler.Phase phase) throws MojoExecutionException, MojoFailureException {
+		measure(name, () -> {
+			phase.run();
+			return null;
+		});
+	}
+
+	<T> T measure(String name, Measured<T> action) throws MojoExecutionException, MojoFailureException {
+		Step step;
+		synchronized (this.steps) {
+			step = this.steps.computeIfAbsent(name, Step::new);
+		}
+		Frame parent = CURRENT.get();
+		Frame frame = new Frame(step, parent);
+		CURRENT.set(frame);
+		List<MemoryPoolMXBean> pools = heapPools();
+		// resetting the peaks while others are measured would hide theirs
+		boolean reset = this.measuring.getAndIncrement() == 0;
+		long heapBefore = 0;
+		for (MemoryPoolMXBean pool : pools) {
+			heapBefore += pool.getUsage().getUsed();
+			if (reset) {
+				pool.resetPeakUsage();
+			}
+		}
+		long stepStart = System.nanoTime();
+		try {
+			return action.run();
+		} finally {
+			long elapsed = System.nanoTime() - stepStart;
+			step.nanos.addAndGet(elapsed - frame.nestedNanos);
+			long heapPeak = 0;
+			for (MemoryPoolMXBean pool : pools) {
+				heapPeak += pool.getPeakUsage().getUsed();
+			}
+			this.measuring.decrementAndGet();
+			long delta = Math.max(0, heapPeak - heapBefore);
+			step.peakHeapDelta.accumulateAndGet(delta, Math::max);
+			if (parent != null) {
+				parent.nestedNanos += elapsed;
+				CURRENT.set(parent);
+			} else {
+				CURRENT.remove();
+			}
+		}
+	}
+
+	private static List<MemoryPoolMXBean> heapPools() {
+		List<MemoryPoolMXBean> res = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				res.add(pool);
+			}
+		}
+		return res;
+	}
+
+	ModelNode toModelNode() {
+		ModelNode res = new ModelNode();
+		res.get("totalMillis").set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.start));
+		ModelNode phases = res.get("phases");
+		synchronized (this.steps) {
+			for (Step step : this.steps.values()) {
+				ModelNode node = phases.get(step.name);
+				node.get("millis").set(TimeUnit.NANOSECONDS.toMillis(step.nanos.get()));
+				node.get("bytesRead").set(step.read.get());
+				node.get("bytesWritten").set(step.written.get());
+				node.get("peakHeapDelta").set(step.peakHeapDelta.get());
+			}
+		}
+		return res;
+	}
+
+	void write(File file) throws IOException {
+		file.getParentFile().mkdirs();
+		try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			out.write(toModelNode().toJSONString(false));
+		}
+	}
+
+	void logSummary(Log log) {
+		synchronized (this.steps) {
+			for (Step step : this.steps.values()) {
+				log.info(String.format("  %-24s %7d ms, read %s, written %s, heap +%s", step.name,
+						TimeUnit.NANOSECONDS.toMillis(step.nanos.get()),
+						FileUtils.byteCountToDisplaySize(step.read.get()),
+						FileUtils.byteCountToDisplaySize(step.written.get()),
+						FileUtils.byteCountToDisplaySize(step.peakHeapDelta.get())));
+			}
+		}
+	}
+
+	/**
+	 * @return the size of a file, or of all files under a folder
+	 */
+	static long size(File file) {
+		if (file.isFile()) {
+			return file.length();
+		}
+		return file.isDirectory() ? FileUtils.sizeOfDirectory(file) : 0;
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Runs the phases of a mojo as a small dependency graph. A phase can only
+ * depend on phases added before it, so the graph has no cycles and the order
+ * of addition is a valid sequential order.
+ *
+ * With a single thread the phases run one after the other, in the order they
+ * were added, on the calling thread. With more threads every phase is started
+ * as soon as its dependencies are done, ready phases being started in the
+ * order they were added. The first failing phase cancels the others, which
+ * are waited for before its exception is thrown, with the exceptions of the
+ * ones failing meanwhile as suppressed exceptions.
+ */
+class PhaseScheduler {
+
+	interface Phase {
+		void run() throws MojoExecutionException, MojoFailureException;
+	}
+
+	private static class Node {
+		private final String name;
+		private final Phase phase;
+		private final List<String> dependencies;
+
+		private Node(String name, Phase phase, List<String> dependencies) {
+			this.name = name;
+			this.phase = phase;
+			this.dependencies = dependencies;
+		}
+	}
+
+	private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+	/**
+	 * @param dependencies
+	 *            names of previously added phases which must be done before
+	 *            this one starts
+	 */
+	void add(String name, Phase phase, String... dependencies) {
+		if (this.nodes.containsKey(name)) {
+			throw new IllegalArgumentException("Phase " + name + " is already defined");
+		}
+		for (String dependency : dependencies) {
+			if (!this.nodes.containsKey(dependency)) {
+				throw new IllegalArgumentException("Phase " + name + " depends on unknown phase " + dependency);
+			}
+		}
+		this.nodes.put(name, new Node(name, phase, Arrays.asList(dependencies)));
+	}
+
+	/**
+	 * @return the names of all phases added so far
+	 */
+	String[] phaseNames() {
+		return this.nodes.keySet().toArray(new String[0]);
+	}
+
+	void run(int threads) throws MojoExecutionException, MojoFailureException {
+		if (threads <= 1) {
+			for (Node node : this.nodes.values()) {
+				node.phase.run();
+			}
+			return;
+		}
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "facade-phase-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		CompletionService<String> completion = new ExecutorCompletionService<>(executor);
+		List<Node> waiting = new ArrayList<>(this.nodes.values());
+		Set<String> done = new HashSet<>();
+		int running = 0;
+		Throwable failure = null;
+		try {
+			while ((!waiting.isEmpty() || running > 0) && failure == null) {
+				for (Iterator<Node> it = waiting.iterator(); it.hasNext();) {
+					Node node = it.next();
+					if (done.containsAll(node.dependencies)) {
+						it.remove();
+						completion.submit(() -> {
+							node.phase.run();
+							return node.name;
+						});
+						running++;
+					}
+				}
+				Future<String> next = completion.take();
+				running--;
+				try {
+					done.add(next.get());
+				} catch (ExecutionException ex) {
+					failure = ex.getCause();
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			failure = new MojoExecutionException("Interrupted while running phases", ex);
+		} finally {
+			// phases still running must not go on writing once this returns
+			executor.shutdownNow();
+			awaitTermination(executor);
+		}
+		// they are all done by now
+		Future<String> finished;
+		while (running > 0 && (finished = completion.poll()) != null) {
+			running--;
+			try {
+				finished.get();
+			} catch (ExecutionException ex) {
+				failure.addSuppressed(ex.getCause());
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (failure instanceof MojoExecutionException) {
+			throw (MojoExecutionException) failure;
+		} else if (failure instanceof MojoFailureException) {
+			throw (MojoFailureException) failure;
+		} else if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new MojoExecutionException(failure.getMessage(), failure);
+		}
+	}
+
+	/**
+	 * Waits for the cancelled phases to finish, even when interrupted.
+	 */
+	private static void awaitTermination(ExecutorService executor) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+					break;
+				}
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes gzip compressed .gz siblings of the text files of a repository
+ * (index.html, web/site.css, category.xml, buildinfo.json...), at the best
+ * compression level, for web servers which serve precompressed files instead
+ * of compressing them on every request, like nginx with gzip_static.
+ *
+ * Files smaller than a threshold are not worth it, and lose a sibling left by
+ * a previous build, as do files which are gone.
+ */
+class PrecompressedFiles {
+
+	static final List<String> DEFAULT_EXTENSIONS = Arrays.asList("html", "htm", "css", "js", "json", "xml",
+			"properties", "txt", "svg");
+	static final String SUFFIX = ".gz";
+
+	private final Set<String> extensions = new HashSet<>();
+	private final long minSize;
+
+	/**
+	 * @param extensions extensions of the text files to compress, eg. "html"
+	 * @param minSize    size in bytes under which files are not compressed
+	 */
+	PrecompressedFiles(Collection<String> extensions, long minSize) {
+		for (String extension : extensions) {
+			this.extensions.add(extension.toLowerCase(Locale.ENGLISH).replaceFirst("^\\.", ""));
+		}
+		this.minSize = minSize;
+	}
+
+	/**
+	 * @return the paths of the .gz siblings written, relative to the root
+	 */
+	List<String> compress(File root) throws IOException {
+		List<String> res = new ArrayList<>();
+		PhaseMetrics.Step step = PhaseMetrics.current();
+		for (Path file : listFiles(root.toPath())) {
+			Path sibling = file.resolveSibling(file.getFileName() + SUFFIX);
+			if (isText(file)) {
+				if (Files.size(file) < this.minSize) {
+					Files.deleteIfExists(sibling);
+					continue;
+				}
+				try (ReplacingOutputStream replacing = new ReplacingOutputStream(sibling.toFile());
+						GZIPOutputStream out = new GZIPOutputStream(replacing) {
+							{
+								def.setLevel(Deflater.BEST_COMPRESSION);
+							}
+						}) {
+					Files.copy(file, out);
+					out.finish();
+					replacing.commit();
+				}
+				// servers compare modification times to pick the sibling
+				Files.setLastModifiedTime(sibling, Files.getLastModifiedTime(file));
+				step.readFile(file.toFile());
+				step.writtenFile(sibling.toFile());
+				res.add(RepositoryChecksums.relativePath(root.toPath(), sibling));
+			} else if (isSibling(file) && !Files.exists(source(file))) {
+				Files.delete(file);
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return the paths of the .gz siblings of text files under root, relative
+	 *         to it
+	 */
+	List<String> listSiblings(File root) throws IOException {
+		List<String> res = new ArrayList<>();
+		for (Path file : listFiles(root.toPath())) {
+			if (isSibling(file) && Files.isRegularFile(source(file))) {
+				res.add(RepositoryChecksums.relativePath(root.toPath(), file));
+			}
+		}
+		return res;
+	}
+
+	private boolean isText(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ENGLISH);
+		int dot = name.lastIndexOf('.');
+		return dot >= 0 && this.extensions.contains(name.substring(dot + 1));
+	}
+
+	private boolean isSibling(Path file) {
+		String name = file.getFileName().toString();
+		return name.endsWith(SUFFIX) && isText(source(file));
+	}
+
+	private static Path source(Path sibling) {
+		String name = sibling.getFileName().toString();
+		return sibling.resolveSibling(name.substring(0, name.length() - SUFFIX.length()));
+	}
+
+	private static List<Path> listFiles(Path root) throws IOException {
+		if (!Files.isDirectory(root)) {
+			return new ArrayList<>();
+		}
+		try (Stream<Path> paths = Files.walk(root)) {
+			return paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+		}
+	}
+}
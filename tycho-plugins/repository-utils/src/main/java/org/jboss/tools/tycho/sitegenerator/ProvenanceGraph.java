@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.commons.io.function.IOSupplier;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Transitive provenance of a build: the upstream builds, theirs, and so on up
+ * to a given depth, each level being fetched concurrently. Every build is kept
+ * once, keyed by project and HEAD, and refers to its own upstream builds by
+ * key, so that the graph grows with the number of distinct builds rather than
+ * with the number of paths to them.
+ */
+class ProvenanceGraph {
+
+	private final Log log;
+	private final Function<String, String> projectNames;
+	/** repository URL to the key of its build, null when it could not be read */
+	private final Map<String, String> keys = new LinkedHashMap<>();
+	private final Map<String, UpstreamBuildInfoFetcher.Result> builds = new LinkedHashMap<>();
+	private final List<String> roots = new ArrayList<>();
+	/** results of the levels beyond the first one, whose files are owned by the graph */
+	private final List<UpstreamBuildInfoFetcher.Result> fetched = new ArrayList<>();
+	private int depth = 0;
+
+	/**
+	 * @param projectNames
+	 *            gives the project name from the URL of its Git repository
+	 */
+	ProvenanceGraph(Log log, Function<String, String> projectNames) {
+		this.log = log;
+		this.projectNames = projectNames;
+	}
+
+	/**
+	 * Walks the upstream builds from the direct ones, which remain owned by the
+	 * caller.
+	 *
+	 * @param fetcher
+	 *            fetcher collecting upstream URLs
+	 * @param maxDepth
+	 *            number of levels to walk, 1 being the direct upstream builds
+	 */
+	void walk(UpstreamBuildInfoFetcher fetcher, List<UpstreamBuildInfoFetcher.Result> direct, int maxDepth)
+			throws MalformedURLException {
+		List<UpstreamBuildInfoFetcher.Result> level = direct;
+		for (UpstreamBuildInfoFetcher.Result result : direct) {
+			this.roots.add(result.repositoryUrl);
+		}
+		while (!level.isEmpty()) {
+			this.depth++;
+			Set<String> next = new LinkedHashSet<>();
+			for (UpstreamBuildInfoFetcher.Result result : level) {
+				if (result.file == null) {
+					this.keys.put(result.repositoryUrl, null);
+					continue;
+				}
+				String key = key(result);
+				this.keys.put(result.repositoryUrl, key);
+				if (this.builds.putIfAbsent(key, result) != null || this.depth >= maxDepth) {
+					// same build reached through another repository URL, or deep enough
+					continue;
+				}
+				for (String url : result.upstreamUrls) {
+					if (!this.keys.containsKey(url) && isURL(url)) {
+						next.add(url);
+					}
+				}
+			}
+			next.removeAll(this.keys.keySet());
+			level = next.isEmpty() ? new ArrayList<>() : fetcher.fetch(new ArrayList<>(next));
+			this.fetched.addAll(level);
+		}
+		this.log.info("Upstream provenance: " + this.builds.size() + " build(s) over " + this.depth + " level(s)");
+	}
+
+	private boolean isURL(String url) {
+		try {
+			new URL(url);
+			return true;
+		} catch (MalformedURLException ex) {
+			this.log.warn("Ignoring upstream repository " + url + ": " + ex.getMessage());
+			this.keys.put(url, null);
+			return false;
+		}
+	}
+
+	private String key(UpstreamBuildInfoFetcher.Result result) {
+		String project = result.projectUrl != null ? this.projectNames.apply(result.projectUrl) : null;
+		String key = project != null ? project : result.repositoryUrl;
+		return result.head != null ? key + "@" + result.head : key;
+	}
+
+	/**
+	 * Writes the graph as JSON: the keys of the direct upstream builds, and
+	 * every build, with the given projection of its build info.
+	 */
+	void write(Writer out, JsonProjection projection) throws IOException {
+		BuildInfoWriter json = new BuildInfoWriter(out);
+		json.beginObject(3);
+		json.name("depth");
+		json.literal(Integer.toString(this.depth));
+		json.name("upstream");
+		writeReferences(json, this.roots);
+		json.name("builds");
+		json.beginObject(this.builds.size());
+		for (Map.Entry<String, UpstreamBuildInfoFetcher.Result> build : this.builds.entrySet()) {
+			UpstreamBuildInfoFetcher.Result result = build.getValue();
+			json.name(build.getKey());
+			json.beginObject(3);
+			json.name("repository");
+			json.string(result.repositoryUrl);
+			json.name("upstream");
+			writeReferences(json, result.upstreamUrls);
+			json.name("buildinfo");
+			IOSupplier<Reader> source = () -> Files.newBufferedReader(result.file.toPath(), StandardCharsets.UTF_8);
+			try {
+				json.copy(source, projection);
+			} catch (IOException ex) {
+				this.log.warn("Could not read build info of " + result.repositoryUrl + ": " + ex.getMessage());
+				json.string("Build info file not accessible: " + ex.getMessage());
+			}
+			json.endObject();
+		}
+		json.endObject();
+		json.endObject();
+	}
+
+	/*
+	 * repository URLs to the key of their build, or null when it is unknown
+	 */
+	private void writeReferences(BuildInfoWriter json, List<String> urls) throws IOException {
+		Set<String> distinct = new LinkedHashSet<>(urls);
+		json.beginObject(distinct.size());
+		for (String url : distinct) {
+			json.name(url);
+			String key = this.keys.get(url);
+			if (key == null) {
+				json.literal("null");
+			} else {
+				json.string(key);
+			}
+		}
+		json.endObject();
+	}
+
+	/**
+	 * Deletes the files downloaded beyond the direct upstream builds.
+	 */
+	void deleteFiles() {
+		for (UpstreamBuildInfoFetcher.Result result : this.fetched) {
+			if (result.file != null) {
+				result.file.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes a file through a temporary sibling, moved over the file on
+ * {@link #commit()}, so that the file is replaced rather than written in
+ * place: a hard link to a source file, as {@link DirectorySync} may leave in
+ * the repository, is never written through. Closing the stream without
+ * committing leaves the file as it was.
+ */
+class ReplacingOutputStream extends FilterOutputStream {
+
+	private final Path target;
+	private final Path tmp;
+	private boolean committed = false;
+
+	ReplacingOutputStream(File target) throws IOException {
+		this(target.toPath().toAbsolutePath(), Files.createTempFile(target.toPath().toAbsolutePath().getParent(),
+				target.getName(), ".tmp"));
+	}
+
+	private ReplacingOutputStream(Path target, Path tmp) throws IOException {
+		super(new BufferedOutputStream(Files.newOutputStream(tmp)));
+		this.target = target;
+		this.tmp = tmp;
+	}
+
+	/**
+	 * Writes a whole file.
+	 */
+	static void write(File target, byte[] content) throws IOException {
+		try (ReplacingOutputStream out = new ReplacingOutputStream(target)) {
+			out.write(content);
+			out.commit();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		this.out.write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (!this.committed) {
+			this.out.flush();
+		}
+	}
+
+	/**
+	 * Replaces the file by what was written, once the streams wrapping this
+	 * one were flushed.
+	 */
+	void commit() throws IOException {
+		this.out.close();
+		Files.move(this.tmp, this.target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		this.committed = true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.committed) {
+			return;
+		}
+		try {
+			this.out.close();
+		} finally {
+			Files.deleteIfExists(this.tmp);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+/**
+ * Zips a p2 repository, storing entries that are already compressed (jars,
+ * .xz, images...) as is instead of deflating them again. Only the other files
+ * (html, css, xml, json...) are deflated.
+ *
+ * With more than one thread, entries are compressed in parallel into scatter
+ * files by a {@link ParallelScatterZipCreator}, then merged into the zip.
+ */
+class RepositoryArchiver {
+
+	static final List<String> DEFAULT_STORED_EXTENSIONS = Arrays.asList("jar", "zip", "xz", "gz", "bz2", "png",
+			"jpg", "jpeg", "gif", "webp", "mp4", "webm");
+
+	private final Set<String> storedExtensions = new HashSet<>();
+	private final Set<String> excludedPaths = new HashSet<>();
+	private final int threads;
+
+	/**
+	 * @param storedExtensions extensions of the files to store without
+	 *                         compression, eg. "jar"
+	 */
+	RepositoryArchiver(Collection<String> storedExtensions) {
+		this(storedExtensions, 1);
+	}
+
+	/**
+	 * @param storedExtensions extensions of the files to store without
+	 *                         compression, eg. "jar"
+	 * @param threads          number of threads compressing entries
+	 */
+	RepositoryArchiver(Collection<String> storedExtensions, int threads) {
+		this.threads = threads;
+		for (String extension : storedExtensions) {
+			this.storedExtensions.add(extension.toLowerCase(Locale.ENGLISH).replaceFirst("^\\.", ""));
+		}
+	}
+
+	/**
+	 * Leaves files out of the archive.
+	 *
+	 * @param relativePaths paths of the files relative to the archived
+	 *                      directory, with '/' separators
+	 */
+	void exclude(Collection<String> relativePaths) {
+		this.excludedPaths.addAll(relativePaths);
+	}
+
+	void createArchive(File directory, File zipFile) throws IOException {
+		Path root = directory.toPath();
+		try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(zipFile)) {
+			if (this.threads > 1) {
+				addEntriesInParallel(root, out);
+			} else {
+				for (Path path : listEntries(root)) {
+					ZipArchiveEntry entry = createEntry(root, path);
+					out.putArchiveEntry(entry);
+					if (!entry.isDirectory()) {
+						Files.copy(path, out);
+					}
+					out.closeArchiveEntry();
+				}
+			}
+		}
+	}
+
+	private void addEntriesInParallel(Path root, ZipArchiveOutputStream out) throws IOException {
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+			Thread thread = new Thread(runnable, "zip-compressor-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		ParallelScatterZipCreator creator = new ParallelScatterZipCreator(executor);
+		for (Path path : listEntries(root)) {
+			ZipArchiveEntry entry = createEntry(root, path);
+			if (entry.isDirectory()) {
+				// no data to compress, write it right away
+				out.putArchiveEntry(entry);
+				out.closeArchiveEntry();
+			} else {
+				creator.addArchiveEntry(entry, () -> {
+					try {
+						return Files.newInputStream(path);
+					} catch (IOException ex) {
+						throw new UncheckedIOException(ex);
+					}
+				});
+			}
+		}
+		try {
+			// waits for all entries, shuts the executor down and merges the
+			// scatter files in the zip
+			creator.writeTo(out);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while creating zip");
+		} catch (ExecutionException ex) {
+			throw new IOException("Could not compress zip entry", ex.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the files and folders under root, in a stable order
+	 */
+	static List<Path> listFiles(Path root) throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			return paths.filter(path -> !path.equals(root)).sorted().collect(Collectors.toList());
+		}
+	}
+
+	private List<Path> listEntries(Path root) throws IOException {
+		List<Path> res = listFiles(root);
+		if (!this.excludedPaths.isEmpty()) {
+			res.removeIf(path -> this.excludedPaths.contains(RepositoryChecksums.relativePath(root, path)));
+		}
+		return res;
+	}
+
+	ZipArchiveEntry createEntry(Path root, Path path) throws IOException {
+		String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+		boolean directory = Files.isDirectory(path);
+		ZipArchiveEntry entry = new ZipArchiveEntry(directory ? name + '/' : name);
+		entry.setTime(Files.getLastModifiedTime(path).toMillis());
+		if (directory) {
+			entry.setMethod(ZipArchiveEntry.STORED);
+			entry.setSize(0);
+			entry.setCrc(0);
+		} else {
+			entry.setMethod(isStored(name) ? ZipArchiveEntry.STORED : ZipArchiveEntry.DEFLATED);
+		}
+		return entry;
+	}
+
+	boolean isStored(String name) {
+		String lowerCaseName = name.toLowerCase(Locale.ENGLISH);
+		int dot = lowerCaseName.lastIndexOf('.');
+		return dot >= 0 && this.storedExtensions.contains(lowerCaseName.substring(dot + 1));
+	}
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SHA-256 and SHA-512 digests of the files of a p2 repository, computed in
+ * parallel. Every file is read once, in large chunks through a direct buffer,
+ * feeding both digests.
+ *
+ * Digests are published as download.checksum.* artifact properties, like p2
+ * does, and in SHA256SUMS and SHA512SUMS manifests in the format of
+ * sha256sum, so that mirrors can check them with sha256sum -c.
+ */
+class RepositoryChecksums {
+
+	static final String SHA_256 = "SHA-256";
+	static final String SHA_512 = "SHA-512";
+	static final String[] MANIFESTS = { "SHA256SUMS", "SHA512SUMS" };
+
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal
+			.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+	/**
+	 * Digests of one file.
+	 */
+	static class Digests {
+		final long size;
+		final String sha256;
+		final String sha512;
+
+		private Digests(long size, String sha256, String sha512) {
+			this.size = size;
+			this.sha256 = sha256;
+			this.sha512 = sha512;
+		}
+
+		/**
+		 * @return the download.checksum.* properties of an artifact stored in
+		 *         this file
+		 */
+		Map<String, String> toProperties() {
+			Map<String, String> res = new LinkedHashMap<>();
+			res.put("download.checksum.sha-256", this.sha256);
+			res.put("download.checksum.sha-512", this.sha512);
+			return res;
+		}
+	}
+
+	private final int threads;
+
+	RepositoryChecksums(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	static Digests digest(Path file) throws IOException {
+		MessageDigest sha256 = newDigest(SHA_256);
+		MessageDigest sha512 = newDigest(SHA_512);
+		long size = update(file, sha256, sha512);
+		PhaseMetrics.current().read(size);
+		return new Digests(size, hex(sha256.digest()), hex(sha512.digest()));
+	}
+
+	/**
+	 * Reads a file once into the buffer of the calling thread, feeding all the
+	 * given digests.
+	 *
+	 * @return the size of the file
+	 */
+	static long update(Path file, MessageDigest... digests) throws IOException {
+		ByteBuffer buffer = BUFFER.get();
+		long size = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			while (true) {
+				buffer.clear();
+				int read = channel.read(buffer);
+				if (read == -1) {
+					return size;
+				}
+				size += read;
+				buffer.flip();
+				for (MessageDigest digest : digests) {
+					digest.update(buffer.duplicate());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the digests of the given files under root, by path relative to
+	 *         root with '/' separators
+	 */
+	SortedMap<String, Digests> digest(Path root, Collection<Path> files) throws IOException {
+		SortedMap<String, Digests> res = new TreeMap<>();
+		if (this.threads == 1 || files.size() < 2) {
+			for (Path file : files) {
+				res.put(relativePath(root, file), digest(file));
+			}
+			return res;
+		}
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+			Thread thread = new Thread(runnable, "checksum-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		// digest threads report their reads to the step of the caller
+		PhaseMetrics.Step step = PhaseMetrics.current();
+		try {
+			List<Future<Digests>> futures = new ArrayList<>();
+			for (Path file : files) {
+				futures.add(executor.submit(() -> {
+					Digests digests = digest(file);
+					step.read(digests.size);
+					return digests;
+				}));
+			}
+			int i = 0;
+			for (Path file : files) {
+				res.put(relativePath(root, file), futures.get(i++).get());
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while computing checksums");
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			}
+			throw new IOException("Could not compute checksum", ex.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return res;
+	}
+
+	/**
+	 * Writes the SHA256SUMS and SHA512SUMS manifests in folder.
+	 */
+	static void writeManifests(File folder, SortedMap<String, Digests> digests) throws IOException {
+		for (String manifest : MANIFESTS) {
+			boolean sha256 = manifest.startsWith("SHA256");
+			File file = new File(folder, manifest);
+			try (ReplacingOutputStream replacing = new ReplacingOutputStream(file);
+					Writer out = new OutputStreamWriter(replacing, StandardCharsets.UTF_8)) {
+				for (Map.Entry<String, Digests> entry : digests.entrySet()) {
+					out.write(sha256 ? entry.getValue().sha256 : entry.getValue().sha512);
+					out.write("  ");
+					out.write(entry.getKey());
+					out.write('\n');
+				}
+				out.flush();
+				replacing.commit();
+			}
+			PhaseMetrics.current().writtenFile(file);
+		}
+	}
+
+	static String relativePath(Path root, Path file) {
+		return root.relativize(file).toString().replace(File.separatorChar, '/');
+	}
+
+	static MessageDigest newDigest(String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	static String hex(byte[] digest) {
+		return String.format("%0" + (digest.length * 2) + "x", new BigInteger(1, digest));
+	}
+}
@@ -0,0 +1,367 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+
+/**
+ * Checks the artifacts of a p2 repository against its artifacts.xml, read
+ * from artifacts.xml, artifacts.jar or artifacts.xml.xz: every artifact file
+ * must exist, and match the download.size and download checksums recorded for
+ * it.
+ *
+ * artifacts.xml is streamed, and each artifact is handed to a pool of threads
+ * as soon as it was read, so hashing starts right away. The queue of the pool
+ * is bounded: when it is full, the thread reading artifacts.xml checks the
+ * artifact itself. Checks are collected as they are done, so memory use
+ * depends neither on the size nor on the number of the artifacts.
+ */
+class RepositoryVerifier {
+
+	/** checked properties, with the algorithm of their digest */
+	static final Map<String, String> CHECKSUM_PROPERTIES = new LinkedHashMap<>();
+	static {
+		CHECKSUM_PROPERTIES.put("download.md5", "MD5");
+		CHECKSUM_PROPERTIES.put("download.checksum.md5", "MD5");
+		CHECKSUM_PROPERTIES.put("download.checksum.sha-256", RepositoryChecksums.SHA_256);
+		CHECKSUM_PROPERTIES.put("download.checksum.sha-512", RepositoryChecksums.SHA_512);
+	}
+
+	/**
+	 * Outcome of a verification. Paths are relative to the repository.
+	 */
+	static class Report {
+		private final Set<String> missing = new ConcurrentSkipListSet<>();
+		private final Set<String> corrupt = new ConcurrentSkipListSet<>();
+		private final SortedSet<String> extra = new TreeSet<>();
+		private final Set<String> unmapped = new ConcurrentSkipListSet<>();
+		private final AtomicLong bytes = new AtomicLong();
+		private int artifacts;
+		private long nanos;
+
+		/**
+		 * @return the paths of the artifacts whose file does not exist
+		 */
+		Set<String> getMissing() {
+			return this.missing;
+		}
+
+		/**
+		 * @return the paths of the artifacts whose file does not match its
+		 *         size or checksums, with what differs
+		 */
+		Set<String> getCorrupt() {
+			return this.corrupt;
+		}
+
+		/**
+		 * @return files in the artifact folders that no artifact maps to
+		 */
+		Set<String> getExtra() {
+			return this.extra;
+		}
+
+		/**
+		 * @return the artifacts that no mapping rule locates in the repository
+		 */
+		Set<String> getUnmapped() {
+			return this.unmapped;
+		}
+
+		int getArtifacts() {
+			return this.artifacts;
+		}
+
+		long getBytes() {
+			return this.bytes.get();
+		}
+
+		long getMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(this.nanos);
+		}
+
+		/**
+		 * @return the hashing throughput, in MB/s
+		 */
+		double getThroughput() {
+			return this.nanos == 0 ? 0 : this.bytes.get() / (1024.0 * 1024.0) / (this.nanos / 1e9);
+		}
+
+		boolean isValid() {
+			return this.missing.isEmpty() && this.corrupt.isEmpty();
+		}
+	}
+
+	/** artifacts queued per thread before the reading thread checks them itself */
+	private static final int QUEUED_PER_THREAD = 4;
+
+	private final XMLInputFactory inputFactory = P2XmlWriter.newInputFactory();
+	private final int threads;
+
+	/**
+	 * @param threads number of threads hashing files
+	 */
+	RepositoryVerifier(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	Report verify(File repository) throws IOException, XMLStreamException {
+		Report report = new Report();
+		long start = System.nanoTime();
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = new ThreadPoolExecutor(this.threads, this.threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(QUEUED_PER_THREAD * this.threads), runnable -> {
+					Thread thread = new Thread(runnable, "repository-verifier-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+		Set<String> referenced = new HashSet<>();
+		try {
+			int[] pending = { 0 };
+			try (InputStream in = openArtifactsXml(repository)) {
+				readArtifacts(in, (path, properties) -> {
+					referenced.add(path);
+					completion.submit(() -> check(repository, path, properties, report), null);
+					pending[0] += 1 - collect(completion, false);
+				}, report);
+			}
+			while (pending[0] > 0) {
+				pending[0] -= collect(completion, true);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		report.extra.addAll(findExtraFiles(repository.toPath(), referenced));
+		report.nanos = System.nanoTime() - start;
+		return report;
+	}
+
+	/*
+	 * Collects the checks done, waiting for one first if asked to; returns how
+	 * many were
+	 */
+	private static int collect(CompletionService<Void> completion, boolean wait) throws IOException {
+		int res = 0;
+		try {
+			for (Future<Void> done = wait ? completion.take() : completion.poll(); done != null; done = completion
+					.poll()) {
+				res++;
+				done.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while verifying artifacts");
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			}
+			throw new IOException("Could not verify artifact", ex.getCause());
+		}
+		return res;
+	}
+
+	private interface ArtifactHandler {
+		void artifact(String path, Map<String, String> properties) throws IOException;
+	}
+
+	/**
+	 * Streams artifacts.xml, handing every artifact located by the mapping
+	 * rules to the handler once its properties were read.
+	 */
+	private void readArtifacts(InputStream in, ArtifactHandler handler, Report report)
+			throws IOException, XMLStreamException {
+		XMLStreamReader reader = this.inputFactory.createXMLStreamReader(in);
+		ArtifactMappings mappings = new ArtifactMappings();
+		Map<String, String> artifact = null;
+		Map<String, String> properties = null;
+		// whether the properties of the artifact are being read, rather than
+		// its repositoryProperties
+		boolean inProperties = false;
+		int depth = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				String name = reader.getLocalName();
+				if (depth == 3 && "rule".equals(name)) {
+					mappings.addRule(reader.getAttributeValue(null, "filter"), reader.getAttributeValue(null, "output"));
+				} else if (depth == 3 && "artifact".equals(name)) {
+					artifact = P2XmlWriter.attributes(reader);
+					properties = new LinkedHashMap<>();
+				} else if (depth == 4 && artifact != null) {
+					inProperties = "properties".equals(name);
+				} else if (depth == 5 && inProperties && "property".equals(name)) {
+					properties.put(reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "value"));
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (depth == 4) {
+					inProperties = false;
+				} else if (depth == 3 && artifact != null) {
+					report.artifacts++;
+					Map<String, String> key = new LinkedHashMap<>(artifact);
+					if (properties.containsKey("format")) {
+						key.put("format", properties.get("format"));
+					}
+					String path = mappings.resolve(key);
+					if (path != null) {
+						handler.artifact(path, properties);
+					} else {
+						report.unmapped.add(artifact.get("classifier") + '/' + artifact.get("id") + '/'
+								+ artifact.get("version"));
+					}
+					artifact = null;
+				}
+				depth--;
+			}
+		}
+		reader.close();
+	}
+
+	private static void check(File repository, String path, Map<String, String> properties, Report report) {
+		Path file = new File(repository, path).toPath();
+		if (!Files.isRegularFile(file)) {
+			report.missing.add(path);
+			return;
+		}
+		List<String> problems = new ArrayList<>();
+		Map<String, MessageDigest> digests = new LinkedHashMap<>();
+		for (Map.Entry<String, String> checksum : CHECKSUM_PROPERTIES.entrySet()) {
+			if (properties.containsKey(checksum.getKey())) {
+				digests.put(checksum.getKey(), RepositoryChecksums.newDigest(checksum.getValue()));
+			}
+		}
+		long size;
+		try {
+			size = RepositoryChecksums.update(file, digests.values().toArray(new MessageDigest[digests.size()]));
+		} catch (IOException ex) {
+			report.corrupt.add(path + " (" + ex.getMessage() + ")");
+			return;
+		}
+		report.bytes.addAndGet(size);
+		String expectedSize = properties.get("download.size");
+		if (expectedSize != null && !expectedSize.equals(Long.toString(size))) {
+			problems.add("size " + size + " instead of " + expectedSize);
+		}
+		for (Map.Entry<String, MessageDigest> digest : digests.entrySet()) {
+			String actual = RepositoryChecksums.hex(digest.getValue().digest());
+			if (!actual.equalsIgnoreCase(properties.get(digest.getKey()).trim())) {
+				problems.add(digest.getKey() + " " + actual + " instead of " + properties.get(digest.getKey()));
+			}
+		}
+		if (!problems.isEmpty()) {
+			report.corrupt.add(path + " (" + String.join(", ", problems) + ")");
+		}
+	}
+
+	/**
+	 * @return the files of the folders holding artifacts (eg. plugins,
+	 *         features) which are not referenced
+	 */
+	private static List<String> findExtraFiles(Path root, Set<String> referenced) throws IOException {
+		Set<String> folders = new TreeSet<>();
+		for (String path : referenced) {
+			int slash = path.indexOf('/');
+			if (slash > 0) {
+				folders.add(path.substring(0, slash));
+			}
+		}
+		List<String> res = new ArrayList<>();
+		for (String folder : folders) {
+			Path directory = root.resolve(folder);
+			if (!Files.isDirectory(directory)) {
+				continue;
+			}
+			try (Stream<Path> paths = Files.walk(directory)) {
+				res.addAll(paths.filter(Files::isRegularFile)
+						.map(path -> RepositoryChecksums.relativePath(root, path))
+						.filter(path -> !referenced.contains(path)).collect(Collectors.toList()));
+			}
+		}
+		Collections.sort(res);
+		return res;
+	}
+
+	/**
+	 * @return a stream of artifacts.xml, read from whichever form the
+	 *         repository has
+	 */
+	static InputStream openArtifactsXml(File repository) throws IOException {
+		File xml = new File(repository, "artifacts.xml");
+		if (xml.isFile()) {
+			return new BufferedInputStream(new FileInputStream(xml));
+		}
+		File jar = new File(repository, "artifacts.jar");
+		if (jar.isFile()) {
+			ZipFile zip = new ZipFile(jar);
+			ZipEntry entry = zip.getEntry("artifacts.xml");
+			if (entry == null) {
+				zip.close();
+				throw new FileNotFoundException("artifacts.xml in " + jar);
+			}
+			return new BufferedInputStream(zip.getInputStream(entry)) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						zip.close();
+					}
+				}
+			};
+		}
+		File xz = new File(repository, "artifacts.xml.xz");
+		if (xz.isFile()) {
+			return new XZCompressorInputStream(new BufferedInputStream(new FileInputStream(xz)), true);
+		}
+		throw new FileNotFoundException("No artifacts.xml, artifacts.jar nor artifacts.xml.xz in " + repository);
+	}
+}
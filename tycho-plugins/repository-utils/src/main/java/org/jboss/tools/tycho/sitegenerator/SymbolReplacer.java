@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Replaces ${...} symbols of a template in a single pass, writing the result
+ * as it goes: the cost is proportional to the size of the template and of the
+ * output, whatever the number of symbols. Unknown symbols are left as is, and
+ * replacement values are not scanned for symbols themselves.
+ */
+class SymbolReplacer {
+
+	// longest symbol name looked up; longer ${... sequences are copied as is
+	private static final int MAX_SYMBOL_LENGTH = 1024;
+
+	private final Map<String, String> symbols = new HashMap<>();
+
+	/**
+	 * @param symbols values by symbol name, either "name" or "${name}"; null
+	 *                values are ignored
+	 */
+	SymbolReplacer(Map<String, String> symbols) {
+		for (Entry<String, String> entry : symbols.entrySet()) {
+			String key = entry.getKey();
+			if (key.startsWith("${") && key.endsWith("}")) {
+				key = key.substring(2, key.length() - 1);
+			}
+			if (entry.getValue() != null) {
+				this.symbols.put(key, entry.getValue());
+			}
+		}
+	}
+
+	void replace(Reader in, Writer out) throws IOException {
+		StringBuilder symbol = new StringBuilder();
+		int c = in.read();
+		while (c != -1) {
+			if (c != '$') {
+				out.write(c);
+				c = in.read();
+				continue;
+			}
+			c = in.read();
+			if (c != '{') {
+				out.write('$');
+				continue;
+			}
+			symbol.setLength(0);
+			c = in.read();
+			while (c != -1 && c != '}' && c != '$' && symbol.length() < MAX_SYMBOL_LENGTH) {
+				symbol.append((char) c);
+				c = in.read();
+			}
+			String value = c == '}' ? this.symbols.get(symbol.toString()) : null;
+			if (value != null) {
+				out.write(value);
+			} else {
+				out.write("${");
+				out.append(symbol);
+				if (c == '}') {
+					out.write('}');
+				} else {
+					// not a symbol: go on scanning from the current character
+					continue;
+				}
+			}
+			c = in.read();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Predicate on the installable units of a content.xml; the units it matches
+ * are removed from the repository metadata. Configured in the pom as
+ *
+ * <pre>
+ * &lt;unitFilters&gt;
+ *   &lt;unitFilter&gt;
+ *     &lt;id&gt;.*\.tests(\.feature\.group)?&lt;/id&gt;
+ *   &lt;/unitFilter&gt;
+ *   &lt;unitFilter&gt;
+ *     &lt;property&gt;org.eclipse.equinox.p2.provider&lt;/property&gt;
+ *     &lt;value&gt;Eclipse.*&lt;/value&gt;
+ *     &lt;category&gt;Early Access&lt;/category&gt;
+ *   &lt;/unitFilter&gt;
+ * &lt;/unitFilters&gt;
+ * </pre>
+ *
+ * Patterns are regular expressions matching the whole string. A filter
+ * matches a unit when all of its criteria do; a filter without criteria
+ * matches nothing.
+ */
+public class UnitFilter {
+
+	static final String CATEGORY_PROPERTY = "org.eclipse.equinox.p2.type.category";
+	static final String NAME_PROPERTY = "org.eclipse.equinox.p2.name";
+
+	/**
+	 * Pattern of the unit id
+	 */
+	private String id;
+
+	/**
+	 * Name of a property the unit must have
+	 */
+	private String property;
+
+	/**
+	 * Pattern of the value of that property; any value if not set
+	 */
+	private String value;
+
+	/**
+	 * Pattern of the id or name of a category directly listing the unit
+	 */
+	private String category;
+
+	private Pattern idPattern;
+	private Pattern valuePattern;
+	private Pattern categoryPattern;
+
+	public UnitFilter() {
+	}
+
+	UnitFilter(String id, String property, String value, String category) {
+		this.id = id;
+		this.property = property;
+		this.value = value;
+		this.category = category;
+	}
+
+	/**
+	 * @return the filter removing the default "Uncategorized" category units
+	 */
+	static UnitFilter defaultCategory() {
+		return new UnitFilter(".*\\.Default.*", null, null, null);
+	}
+
+	/**
+	 * @return whether matching needs the categories listing the units
+	 */
+	boolean needsCategories() {
+		return this.category != null;
+	}
+
+	/**
+	 * @param unitId     id of the unit
+	 * @param properties properties of the unit
+	 * @param categories ids and names of the categories listing the unit
+	 */
+	boolean matches(String unitId, Map<String, String> properties, Set<String> categories) {
+		if (this.id == null && this.property == null && this.category == null) {
+			return false;
+		}
+		if (this.id != null) {
+			if (this.idPattern == null) {
+				this.idPattern = Pattern.compile(this.id);
+			}
+			if (unitId == null || !this.idPattern.matcher(unitId).matches()) {
+				return false;
+			}
+		}
+		if (this.property != null) {
+			String propertyValue = properties.get(this.property);
+			if (propertyValue == null) {
+				return false;
+			}
+			if (this.value != null) {
+				if (this.valuePattern == null) {
+					this.valuePattern = Pattern.compile(this.value);
+				}
+				if (!this.valuePattern.matcher(propertyValue).matches()) {
+					return false;
+				}
+			}
+		}
+		if (this.category != null) {
+			if (this.categoryPattern == null) {
+				this.categoryPattern = Pattern.compile(this.category);
+			}
+			return categories.stream().anyMatch(label -> this.categoryPattern.matcher(label).matches());
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "UnitFilter[id=" + this.id + ", property=" + this.property + ", value=" + this.value + ", category="
+				+ this.category + "]";
+	}
+}
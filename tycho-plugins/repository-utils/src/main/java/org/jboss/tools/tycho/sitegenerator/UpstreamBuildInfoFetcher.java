@@ -0,0 +1,450 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.maven.plugin.logging.Log;
+import org.jboss.tools.tycho.sitegenerator.JsonTokenizer.Token;
+
+/**
+ * Reads the buildinfo.json of upstream p2 repositories. The lookups of all
+ * repositories, including the ones in their fallback child folder, are issued
+ * concurrently on a bounded pool, each connection with its own timeout and all
+ * of them within an overall deadline. Results come back in repository order.
+ *
+ * Responses are streamed as they are into files of a download folder, only the
+ * few values needed to name them being picked out on the way.
+ */
+class UpstreamBuildInfoFetcher {
+
+	/**
+	 * Outcome of the lookup for one repository: either the downloaded upstream
+	 * build info or the reason why it could not be read.
+	 */
+	static class Result {
+		final String repositoryUrl;
+		/** raw upstream buildinfo.json, now owned by the caller */
+		final File file;
+		/** revision.knownReferences[0].url, if any */
+		final String projectUrl;
+		/** revision.HEAD, if any */
+		final String head;
+		/** repositories the upstream build itself lists as upstream, when collected */
+		final List<String> upstreamUrls;
+		final String error;
+
+		private Result(String repositoryUrl, Download download) {
+			this.repositoryUrl = repositoryUrl;
+			this.file = download.file;
+			this.projectUrl = download.projectUrl;
+			this.head = download.head;
+			this.upstreamUrls = download.upstreamUrls;
+			this.error = null;
+		}
+
+		private Result(String repositoryUrl, String error) {
+			this.repositoryUrl = repositoryUrl;
+			this.file = null;
+			this.projectUrl = null;
+			this.head = null;
+			this.upstreamUrls = Collections.emptyList();
+			this.error = error;
+		}
+	}
+
+	private static class Download {
+		private final File file;
+		private String projectUrl;
+		private String head;
+		private List<String> upstreamUrls = Collections.emptyList();
+
+		private Download(File file) {
+			this.file = file;
+		}
+	}
+
+	/**
+	 * Keeps track of the downloaded files no result was handed out for yet, so
+	 * that the ones of abandoned lookups can be removed, even when such a
+	 * lookup only completes after the results were collected. A file is only
+	 * created once its connection is open; downloads still in progress when
+	 * the results are collected are aborted, and waited for.
+	 */
+	private static class Downloads {
+		private final Set<File> unclaimed = new HashSet<>();
+		/** files being downloaded, with the stream they are read from */
+		private final Map<File, InputStream> inProgress = new HashMap<>();
+		private boolean closed = false;
+
+		/**
+		 * @return the file to download into, or null if lookups were abandoned
+		 */
+		private synchronized File start(File folder, InputStream connection) throws IOException {
+			if (this.closed) {
+				return null;
+			}
+			File file = Files.createTempFile(folder.toPath(), "buildinfo", ".json.tmp").toFile();
+			this.inProgress.put(file, connection);
+			return file;
+		}
+
+		/**
+		 * @return whether the file is kept, as it was completely read and
+		 *         lookups were not abandoned meanwhile
+		 */
+		private synchronized boolean finish(File file, boolean complete) {
+			this.inProgress.remove(file);
+			notifyAll();
+			if (complete && !this.closed) {
+				this.unclaimed.add(file);
+				return true;
+			}
+			file.delete();
+			return false;
+		}
+
+		private synchronized Download claim(Download download) {
+			this.unclaimed.remove(download.file);
+			return download;
+		}
+
+		/**
+		 * Abandons the downloads in progress, waiting at most timeoutMillis for
+		 * them to remove their file, and removes the unclaimed files.
+		 */
+		private void close(long timeoutMillis) {
+			List<InputStream> connections;
+			synchronized (this) {
+				this.closed = true;
+				connections = new ArrayList<>(this.inProgress.values());
+			}
+			// outside of the lock, as finish() is called once the read failed
+			for (InputStream connection : connections) {
+				IOUtils.closeQuietly(connection);
+			}
+			synchronized (this) {
+				long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+				try {
+					long remaining;
+					while (!this.inProgress.isEmpty() && (remaining = end - System.nanoTime()) > 0) {
+						TimeUnit.NANOSECONDS.timedWait(this, remaining);
+					}
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				for (File file : this.unclaimed) {
+					file.delete();
+				}
+				this.unclaimed.clear();
+			}
+		}
+	}
+
+	private final Log log;
+	private final BuildInfoCache cache;
+	private final File downloadFolder;
+	private final String fallbackToChild;
+	private final int threads;
+	private final int timeoutMillis;
+	private final long deadlineMillis;
+	private final boolean collectUpstreamUrls;
+
+	/**
+	 * @param cache
+	 *            cache to read through, or null to always download
+	 * @param downloadFolder
+	 *            folder the upstream files are downloaded into
+	 * @param fallbackToChild
+	 *            child folder to look into when a repository has no
+	 *            buildinfo.json, or null
+	 * @param timeoutMillis
+	 *            connect and read timeout of every lookup
+	 * @param deadlineMillis
+	 *            time after which lookups still running are abandoned
+	 * @param collectUpstreamUrls
+	 *            whether to also pick the repositories listed in the upstream
+	 *            element of each build info, which means reading it further
+	 */
+	UpstreamBuildInfoFetcher(Log log, BuildInfoCache cache, File downloadFolder, String fallbackToChild,
+			int threads, int timeoutMillis, long deadlineMillis, boolean collectUpstreamUrls) {
+		this.log = log;
+		this.cache = cache;
+		this.downloadFolder = downloadFolder;
+		this.fallbackToChild = fallbackToChild != null && !fallbackToChild.isEmpty() ? fallbackToChild : null;
+		this.threads = Math.max(1, threads);
+		this.timeoutMillis = timeoutMillis;
+		this.deadlineMillis = deadlineMillis;
+		this.collectUpstreamUrls = collectUpstreamUrls;
+	}
+
+	List<Result> fetch(List<String> repositoryUrls) throws MalformedURLException {
+		List<URL> primaryUrls = new ArrayList<>();
+		List<URL> fallbackUrls = new ArrayList<>();
+		for (String repositoryUrl : repositoryUrls) {
+			primaryUrls.add(new URL(withSlash(repositoryUrl) + GenerateRepositoryFacadeMojo.BUILDINFO_JSON));
+			if (this.fallbackToChild != null) {
+				String url = withSlash(repositoryUrl);
+				if (!url.endsWith(this.fallbackToChild)) {
+					url += this.fallbackToChild;
+				}
+				fallbackUrls.add(new URL(withSlash(url) + GenerateRepositoryFacadeMojo.BUILDINFO_JSON));
+			}
+		}
+
+		long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.deadlineMillis);
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+			Thread thread = new Thread(runnable, "buildinfo-fetcher-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		Downloads downloads = new Downloads();
+		this.downloadFolder.mkdirs();
+		try {
+			// primary lookups first, so that they get the pool before the fallbacks
+			List<Future<Download>> primaries = new ArrayList<>();
+			for (URL url : primaryUrls) {
+				primaries.add(executor.submit(() -> read(url, 1, downloads)));
+			}
+			List<Future<Download>> fallbacks = new ArrayList<>();
+			for (URL url : fallbackUrls) {
+				fallbacks.add(executor.submit(() -> read(url, 2, downloads)));
+			}
+
+			List<Result> results = new ArrayList<>();
+			for (int i = 0; i < repositoryUrls.size(); i++) {
+				String repositoryUrl = repositoryUrls.get(i);
+				Future<Download> fallback = fallbacks.isEmpty() ? null : fallbacks.get(i);
+				try {
+					Download download = await(primaries.get(i), end);
+					if (fallback != null) {
+						fallback.cancel(true);
+					}
+					results.add(new Result(repositoryUrl, downloads.claim(download)));
+				} catch (IOException ex) {
+					if (fallback == null) {
+						this.log.warn("Could not access build info at " + primaryUrls.get(i)
+								+ "; try setting <fallbackToChild>latest/all/repo</fallbackToChild> in your pom.xml");
+						results.add(new Result(repositoryUrl, ex.getMessage()));
+						continue;
+					}
+					try {
+						results.add(new Result(repositoryUrl, downloads.claim(await(fallback, end))));
+					} catch (IOException ex2) {
+						this.log.warn("Could not access build info at " + fallbackUrls.get(i) + " or "
+								+ primaryUrls.get(i));
+						results.add(new Result(repositoryUrl, ex.getMessage()));
+					}
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+			downloads.close(this.timeoutMillis);
+		}
+	}
+
+	private Download read(URL url, int attempt, Downloads downloads) throws IOException {
+		this.log.debug("Read JSON (" + attempt + ") from: " + url);
+		InputStream connection = open(url);
+		File file;
+		try {
+			file = downloads.start(this.downloadFolder, connection);
+		} catch (IOException | RuntimeException ex) {
+			connection.close();
+			throw ex;
+		}
+		if (file == null) {
+			connection.close();
+			throw new InterruptedIOException("Lookup of " + url + " abandoned");
+		}
+		Download download = new Download(file);
+		boolean done = false;
+		try (InputStream in = new TeeInputStream(connection, new FileOutputStream(file), true)) {
+			scan(new JsonTokenizer(new InputStreamReader(in, StandardCharsets.UTF_8)), download);
+			IOUtils.consume(in);
+			done = true;
+		} finally {
+			done = downloads.finish(file, done);
+		}
+		if (!done) {
+			throw new InterruptedIOException("Lookup of " + url + " abandoned");
+		}
+		return download;
+	}
+
+	/*
+	 * picks revision.HEAD, revision.knownReferences[0].url and, if asked for,
+	 * the names of the upstream element out of a buildinfo.json
+	 */
+	private void scan(JsonTokenizer json, Download download) throws IOException {
+		if (json.next() != Token.BEGIN_OBJECT) {
+			throw new IOException("Build info is not a JSON object");
+		}
+		boolean revision = false;
+		boolean upstream = !this.collectUpstreamUrls;
+		while (json.next() == Token.NAME) {
+			String name = json.getText();
+			if (!revision && "revision".equals(name)) {
+				scanRevision(json, download);
+				revision = true;
+			} else if (!upstream && "upstream".equals(name)) {
+				download.upstreamUrls = names(json);
+				upstream = true;
+			} else {
+				json.skipValue();
+			}
+			if (revision && upstream) {
+				return;
+			}
+		}
+	}
+
+	private static void scanRevision(JsonTokenizer json, Download download) throws IOException {
+		Token token = json.next();
+		if (token != Token.BEGIN_OBJECT) {
+			if (token == Token.BEGIN_ARRAY) {
+				json.skipContainer();
+			}
+			return;
+		}
+		while ((token = json.next()) == Token.NAME) {
+			String name = json.getText();
+			if ("HEAD".equals(name)) {
+				download.head = scalar(json);
+			} else if ("knownReferences".equals(name)) {
+				download.projectUrl = firstUrl(json);
+			} else {
+				json.skipValue();
+			}
+			if (download.head != null && download.projectUrl != null) {
+				json.skipContainer();
+				return;
+			}
+		}
+		if (token != Token.END_OBJECT) {
+			throw new IOException("Malformed build info");
+		}
+	}
+
+	private static List<String> names(JsonTokenizer json) throws IOException {
+		Token token = json.next();
+		if (token != Token.BEGIN_OBJECT) {
+			if (token == Token.BEGIN_ARRAY) {
+				json.skipContainer();
+			}
+			return Collections.emptyList();
+		}
+		List<String> res = new ArrayList<>();
+		while (json.next() == Token.NAME) {
+			res.add(json.getText());
+			json.skipValue();
+		}
+		return res;
+	}
+
+	private static String scalar(JsonTokenizer json) throws IOException {
+		Token token = json.next();
+		if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) {
+			json.skipContainer();
+			return null;
+		}
+		return token == Token.STRING ? json.getText() : null;
+	}
+
+	private static String firstUrl(JsonTokenizer json) throws IOException {
+		Token token = json.next();
+		if (token != Token.BEGIN_ARRAY) {
+			if (token == Token.BEGIN_OBJECT) {
+				json.skipContainer();
+			}
+			return null;
+		}
+		String res = null;
+		token = json.next();
+		if (token == Token.END_ARRAY) {
+			return null;
+		} else if (token == Token.BEGIN_OBJECT) {
+			while (json.next() == Token.NAME) {
+				if ("url".equals(json.getText())) {
+					res = scalar(json);
+				} else {
+					json.skipValue();
+				}
+			}
+		} else if (token == Token.BEGIN_ARRAY) {
+			json.skipContainer();
+		}
+		// rest of the references
+		json.skipContainer();
+		return res;
+	}
+
+	private InputStream open(URL url) throws IOException {
+		if (this.cache != null) {
+			return this.cache.open(url, this.timeoutMillis);
+		}
+		URLConnection connection = url.openConnection();
+		connection.setConnectTimeout(this.timeoutMillis);
+		connection.setReadTimeout(this.timeoutMillis);
+		return connection.getInputStream();
+	}
+
+	private static Download await(Future<Download> future, long end) throws IOException {
+		try {
+			return future.get(Math.max(0, end - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException ex) {
+			future.cancel(true);
+			throw new IOException("Deadline for upstream build info exceeded", ex);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading upstream build info");
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			} else if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new IOException(ex.getCause());
+		}
+	}
+
+	private static String withSlash(String url) {
+		return url.endsWith("/") ? url : url + "/";
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ *
+ *     This can be run from within a pom (mapped to verify phase), or via
+ *     commandline on any p2 repository, eg. a mirror about to be published:
+ *
+ *      mvn org.jboss.tools.tycho-plugins:repository-utils:verify-repository \
+ *          -Dverify-repository.repository=/path/to/repository
+ *
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Checks that the artifacts of a p2 repository match its artifacts.xml (or
+ * artifacts.jar, or artifacts.xml.xz): every plugin, feature or binary must
+ * exist, with the download.size, download.md5 and download.checksum.*
+ * recorded for it. Reports missing, corrupt and extra files.
+ */
+@Mojo(name = "verify-repository", defaultPhase = LifecyclePhase.VERIFY, requiresProject = false)
+public class VerifyRepositoryMojo extends AbstractMojo {
+
+	/**
+	 * The p2 repository to verify
+	 */
+	@Parameter(property = "verify-repository.repository", defaultValue = "${project.build.directory}/repository")
+	private File repository;
+
+	/**
+	 * Number of threads hashing artifacts; 0 for one per processor
+	 */
+	@Parameter(property = "verify-repository.threads", defaultValue = "0")
+	private int threads;
+
+	/**
+	 * Whether to fail when artifacts are missing or corrupt, rather than only
+	 * reporting them
+	 */
+	@Parameter(property = "verify-repository.failOnError", defaultValue = "true")
+	private boolean failOnError;
+
+	/**
+	 * Whether to also fail when the folders of the artifacts contain files
+	 * that no artifact maps to
+	 */
+	@Parameter(property = "verify-repository.failOnExtraFiles", defaultValue = "false")
+	private boolean failOnExtraFiles;
+
+	@Parameter(property = "verify-repository.skip", defaultValue = "false")
+	private boolean skip;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		if (this.skip) {
+			return;
+		}
+		if (!this.repository.isDirectory()) {
+			throw new MojoExecutionException("No repository to verify in " + this.repository);
+		}
+		int poolThreads = this.threads > 0 ? this.threads : Runtime.getRuntime().availableProcessors();
+		RepositoryVerifier.Report report;
+		try {
+			report = new RepositoryVerifier(poolThreads).verify(this.repository);
+		} catch (IOException | XMLStreamException ex) {
+			throw new MojoExecutionException("Could not verify " + this.repository, ex);
+		}
+
+		for (String path : report.getMissing()) {
+			getLog().error("Missing: " + path);
+		}
+		for (String path : report.getCorrupt()) {
+			getLog().error("Corrupt: " + path);
+		}
+		for (String path : report.getExtra()) {
+			getLog().warn("Extra: " + path);
+		}
+		for (String artifact : report.getUnmapped()) {
+			getLog().warn("No mapping rule for " + artifact);
+		}
+		getLog().info(String.format(
+				"Verified %d artifact(s) of %s: %d missing, %d corrupt, %d extra file(s); "
+						+ "hashed %s in %d ms (%.1f MB/s) on %d thread(s)",
+				report.getArtifacts(), this.repository, report.getMissing().size(), report.getCorrupt().size(),
+				report.getExtra().size(), FileUtils.byteCountToDisplaySize(report.getBytes()), report.getMillis(),
+				report.getThroughput(), poolThreads));
+
+		if (this.failOnError && !report.isValid()) {
+			throw new MojoFailureException(this.repository + " does not match its artifacts.xml: "
+					+ report.getMissing().size() + " missing and " + report.getCorrupt().size()
+					+ " corrupt artifact(s)");
+		}
+		if (this.failOnExtraFiles && !report.getExtra().isEmpty()) {
+			throw new MojoFailureException(
+					this.repository + " contains " + report.getExtra().size() + " file(s) not in its artifacts.xml");
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2026, Red Hat, Inc.
+ * Distributed under license by Red Hat, Inc. All rights reserved.
+ * This program is made available under the terms of the
+ * Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributor:
+ *     Red Hat, Inc. - initial API and implementation
+ ******************************************************************************/
+package org.jboss.tools.tycho.sitegenerator;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+import net.sf.saxon.Configuration;
+import net.sf.saxon.TransformerFactoryImpl;
+import net.sf.saxon.event.Builder;
+
+/**
+ * Compiled XSLT stylesheets, cached for the lifetime of the Maven session so
+ * that every eclipse-repository module of a reactor shares them and only has
+ * to create a cheap {@link Transformer}.
+ *
+ * The stylesheets are XSLT 2.0, so Saxon is used explicitly rather than
+ * whatever the context class loader of the calling thread would find.
+ */
+final class XsltTemplates {
+
+	private XsltTemplates() {
+	}
+
+	/**
+	 * @param session           current session, holding the cache; if null,
+	 *                          the stylesheet is compiled without caching
+	 * @param customStylesheet  stylesheet file to use; if null, use
+	 *                          defaultResource
+	 * @param defaultResource   class path resource of the default stylesheet,
+	 *                          eg. /xslt/site.xsl
+	 */
+	static Transformer newTransformer(MavenSession session, File customStylesheet, String defaultResource)
+			throws TransformerConfigurationException, IOException {
+		URL stylesheet;
+		String key;
+		if (customStylesheet != null) {
+			if (!customStylesheet.isFile()) {
+				throw new FileNotFoundException(customStylesheet.getAbsolutePath());
+			}
+			stylesheet = customStylesheet.toURI().toURL();
+			// a modified custom stylesheet gets compiled again
+			key = XsltTemplates.class.getName() + ':' + stylesheet + '@' + customStylesheet.lastModified() + '/'
+					+ customStylesheet.length();
+		} else {
+			stylesheet = XsltTemplates.class.getResource(defaultResource);
+			if (stylesheet == null) {
+				throw new FileNotFoundException(defaultResource);
+			}
+			key = XsltTemplates.class.getName() + ':' + stylesheet;
+		}
+		SessionData data = session != null && session.getRepositorySession() != null
+				? session.getRepositorySession().getData()
+				: null;
+		Templates templates = data != null ? (Templates) data.get(key) : null;
+		if (templates == null) {
+			templates = compile(stylesheet);
+			if (data != null && !data.set(key, null, templates)) {
+				// compiled concurrently by another module
+				templates = (Templates) data.get(key);
+			}
+		}
+		return templates.newTransformer();
+	}
+
+	private static Templates compile(URL stylesheet) throws TransformerConfigurationException, IOException {
+		try (InputStream in = stylesheet.openStream()) {
+			return new TransformerFactoryImpl().newTemplates(new StreamSource(in, stylesheet.toString()));
+		}
+	}
+
+	/**
+	 * Parses a document once into a Saxon tiny tree, which any number of
+	 * transformations can then read, also concurrently.
+	 */
+	static Source buildTree(File xml) throws TransformerException {
+		return Builder.build(new StreamSource(xml), null, new Configuration());
+	}
+}
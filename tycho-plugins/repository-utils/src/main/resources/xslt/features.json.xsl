@@ -0,0 +1,63 @@
+<xsl:stylesheet version="2.0"
+	xmlns:xsl="http://www.w3.org/1999/XSL/Transform" xmlns:xs="http://www.w3.org/2001/XMLSchema"
+	xmlns:json="urn:jbosstools:json" exclude-result-prefixes="xs json">
+	<!-- Compact index of the features of category.xml, grouped by category and
+		sorted, read by the index.html generated with site-index.xsl. Features are
+		[id, version, url] arrays. -->
+	<xsl:output method="text" encoding="UTF-8" />
+
+	<xsl:function name="json:string" as="xs:string">
+		<xsl:param name="value" />
+		<xsl:sequence
+			select="concat('&quot;', replace(replace(replace(string($value), '\\', '\\\\'), '&quot;', '\\&quot;'), '[\n\r\t]', ' '), '&quot;')" />
+	</xsl:function>
+
+	<xsl:template name="features">
+		<xsl:param name="features" />
+		<xsl:text>[</xsl:text>
+		<xsl:for-each select="$features">
+			<xsl:sort select="@id" />
+			<xsl:sort select="@version" />
+			<xsl:if test="position() > 1">
+				<xsl:text>,</xsl:text>
+			</xsl:if>
+			<xsl:text>[</xsl:text>
+			<xsl:value-of select="json:string(@id)" />
+			<xsl:text>,</xsl:text>
+			<xsl:value-of select="json:string(@version)" />
+			<xsl:text>,</xsl:text>
+			<xsl:value-of select="json:string(@url)" />
+			<xsl:text>]</xsl:text>
+		</xsl:for-each>
+		<xsl:text>]</xsl:text>
+	</xsl:template>
+
+	<xsl:template match="/site">
+		<xsl:variable name="site" select="." />
+		<xsl:text>{"count":</xsl:text>
+		<xsl:value-of select="count(feature)" />
+		<xsl:text>,"categories":[</xsl:text>
+		<xsl:for-each select="category-def">
+			<xsl:sort select="@name" />
+			<xsl:variable name="name" select="string(@name)" />
+			<xsl:if test="position() > 1">
+				<xsl:text>,</xsl:text>
+			</xsl:if>
+			<xsl:text>{"name":</xsl:text>
+			<xsl:value-of select="json:string(@name)" />
+			<xsl:text>,"label":</xsl:text>
+			<xsl:value-of select="json:string(if (@label) then @label else @name)" />
+			<xsl:text>,"features":</xsl:text>
+			<xsl:call-template name="features">
+				<xsl:with-param name="features" select="$site/feature[category/@name = $name]" />
+			</xsl:call-template>
+			<xsl:text>}</xsl:text>
+		</xsl:for-each>
+		<xsl:text>],"uncategorized":</xsl:text>
+		<xsl:call-template name="features">
+			<xsl:with-param name="features"
+				select="feature[not(category/@name = $site/category-def/@name)]" />
+		</xsl:call-template>
+		<xsl:text>}&#10;</xsl:text>
+	</xsl:template>
+</xsl:stylesheet>
@@ -0,0 +1,160 @@
+<xsl:stylesheet version="2.0"
+	xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+	<!-- ${site.contents} of a site listing its features in features.json (see
+		features.json.xsl) rather than inline: the features are loaded once the page
+		is shown, then filtered and paginated in the browser, so the size of the
+		page does not depend on the number of features. Elements are in no namespace
+		so that the script is serialized as is. -->
+	<xsl:output method="html" indent="yes" />
+	<xsl:template match="/site">
+		<div style="font-size:x-small">
+			<input id="feature-filter" type="search" placeholder="Filter features" size="40" />
+			<select id="feature-category">
+				<option value="">All categories</option>
+			</select>
+			<button id="feature-previous" type="button" disabled="disabled">&lt;</button>
+			<span id="feature-status">Loading <xsl:value-of select="count(feature)" /> features...</span>
+			<button id="feature-next" type="button" disabled="disabled">&gt;</button>
+		</div>
+		<table cellspacing="2" cellpadding="0" border="0" width="100%">
+			<thead>
+				<tr style="background-color:#DDDDDD">
+					<th class="column-header">Feature</th>
+					<th class="column-header">Version</th>
+				</tr>
+			</thead>
+			<tbody id="feature-rows"></tbody>
+			<tfoot>
+			<tr style="background-color:#EEEEEE">
+				<td class="rowLine" colspan="1">
+					<a href="artifacts.jar" style="font-size:x-small">artifacts.jar</a>
+					::
+					<a href="content.jar" style="font-size:x-small">content.jar</a>
+					::
+					<a href="features.json" style="font-size:x-small">features.json</a>
+				</td>
+				<td class="rowLine" colspan="1">
+					::
+					<a href="plugins/" style="font-size:x-small">plugins</a>
+				<xsl:if test="count(feature)>0">
+					::
+					<a href="features/" style="font-size:x-small">features</a>
+				</xsl:if>
+				<xsl:if test="count(feature[contains(@id,'jboss')])>0">
+					::
+					<a href="category.xml" style="font-size:x-small">category.xml</a>
+					::
+					<a href="buildinfo.json" style="font-size:x-small">buildinfo.json</a>
+					::
+					<a href="site.properties" style="font-size:x-small">site.properties</a>
+				</xsl:if>
+				</td>
+			</tr>
+			</tfoot>
+		</table>
+		<br />
+		<script type="text/javascript"><![CDATA[
+(function () {
+	var pageSize = 50, rows = [], shown = [], page = 0;
+	var filter = document.getElementById('feature-filter'), category = document.getElementById('feature-category'),
+		body = document.getElementById('feature-rows'), status = document.getElementById('feature-status'),
+		previous = document.getElementById('feature-previous'), next = document.getElementById('feature-next');
+
+	function cell(tr, text, href) {
+		var td = document.createElement('td'), content = document.createElement(href ? 'a' : 'span');
+		content.style.fontSize = 'x-small';
+		content.textContent = text;
+		if (href) {
+			content.href = href;
+			td.className = 'rowLine';
+		}
+		td.appendChild(content);
+		tr.appendChild(td);
+	}
+
+	function render() {
+		while (body.firstChild) {
+			body.removeChild(body.firstChild);
+		}
+		var start = page * pageSize, end = Math.min(shown.length, start + pageSize), group = null;
+		for (var i = start; i < end; i++) {
+			var row = shown[i], tr;
+			if (row[0] !== group) {
+				group = row[0];
+				tr = document.createElement('tr');
+				tr.style.backgroundColor = '#DDDDDD';
+				var th = document.createElement('th');
+				th.className = 'column-header';
+				th.colSpan = 2;
+				th.textContent = group;
+				tr.appendChild(th);
+				body.appendChild(tr);
+			}
+			tr = document.createElement('tr');
+			tr.style.backgroundColor = i % 2 ? '#FFFFFF' : '#EEEEEE';
+			cell(tr, row[1], row[3]);
+			cell(tr, row[2]);
+			body.appendChild(tr);
+		}
+		status.textContent = shown.length ? (start + 1) + '-' + end + ' of ' + shown.length + ' features'
+			: 'No matching feature';
+		previous.disabled = page === 0;
+		next.disabled = end >= shown.length;
+	}
+
+	function update() {
+		var text = filter.value.toLowerCase(), selected = category.value;
+		shown = rows.filter(function (row) {
+			return (!selected || row[0] === selected) && row[1].toLowerCase().indexOf(text) >= 0;
+		});
+		page = 0;
+		render();
+	}
+
+	function load(index) {
+		function add(label, features) {
+			if (features.length) {
+				var option = document.createElement('option');
+				option.value = option.textContent = label;
+				category.appendChild(option);
+			}
+			features.forEach(function (feature) {
+				rows.push([label, feature[0], feature[1], feature[2]]);
+			});
+		}
+		index.categories.forEach(function (c) {
+			add(c.label, c.features);
+		});
+		add('Uncategorized', index.uncategorized);
+		filter.oninput = category.onchange = update;
+		previous.onclick = function () {
+			page--;
+			render();
+		};
+		next.onclick = function () {
+			page++;
+			render();
+		};
+		update();
+	}
+
+	window.addEventListener('load', function () {
+		var request = new XMLHttpRequest();
+		request.open('GET', 'features.json');
+		request.onload = function () {
+			// status 0 when browsing the site from a local folder
+			if (request.status === 200 || request.status === 0) {
+				load(JSON.parse(request.responseText));
+			} else {
+				status.textContent = 'Could not load features.json: ' + request.status;
+			}
+		};
+		request.onerror = function () {
+			status.textContent = 'Could not load features.json';
+		};
+		request.send();
+	});
+})();
+]]></script>
+	</xsl:template>
+</xsl:stylesheet>
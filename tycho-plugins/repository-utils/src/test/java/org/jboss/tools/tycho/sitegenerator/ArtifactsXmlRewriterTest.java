@@ -0,0 +1,139 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+public class ArtifactsXmlRewriterTest {
+
+	private static final String ARTIFACTS_XML = "/p2-repository/artifacts.xml";
+	private static final String P2_STATS_URL = "http://download.jboss.org/jbosstools/stats/";
+
+	@Test
+	public void testSameResultAsDomRewrite() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ArtifactsXmlRewriter(P2_STATS_URL).rewrite(() -> getClass().getResourceAsStream(ARTIFACTS_XML), out);
+		Document streamed = parse(new ByteArrayInputStream(out.toByteArray()));
+
+		Document expected;
+		try (InputStream in = getClass().getResourceAsStream(ARTIFACTS_XML)) {
+			expected = parse(new ByteArrayInputStream(domRewrite(in)));
+		}
+		assertTrue(expected.isEqualNode(streamed));
+
+		NodeList stats = streamed.getElementsByTagName("property");
+		int downloadStats = 0;
+		for (int i = 0; i < stats.getLength(); i++) {
+			if ("download.stats".equals(((Element) stats.item(i)).getAttribute("name"))) {
+				downloadStats++;
+			}
+		}
+		assertEquals(2, downloadStats);
+	}
+
+	@Test
+	public void testArtifactProperties() throws Exception {
+		Map<String, String> requested = new LinkedHashMap<>();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ArtifactsXmlRewriter(null, path -> {
+			Map<String, String> res = new LinkedHashMap<>();
+			res.put("download.md5", "md5:" + path);
+			res.put("download.checksum.sha-256", "sha256:" + path);
+			requested.put(path, path);
+			return res;
+		}).rewrite(() -> getClass().getResourceAsStream(ARTIFACTS_XML), out);
+		Document streamed = parse(new ByteArrayInputStream(out.toByteArray()));
+
+		assertEquals("[plugins/org.jboss.tools.example.core_1.0.0.Final.jar, "
+				+ "features/org.jboss.tools.example.feature_1.0.0.Final.jar, "
+				+ "features/org.jboss.tools.example.extra.feature_1.0.0.Final.jar]", requested.keySet().toString());
+		NodeList artifacts = streamed.getElementsByTagName("artifact");
+		Element bundleProperties = (Element) ((Element) artifacts.item(0)).getElementsByTagName("properties").item(0);
+		// existing property replaced in place, new one added
+		assertEquals("4", bundleProperties.getAttribute("size"));
+		NodeList properties = bundleProperties.getElementsByTagName("property");
+		assertEquals(4, properties.getLength());
+		assertEquals("download.md5", ((Element) properties.item(2)).getAttribute("name"));
+		assertEquals("md5:plugins/org.jboss.tools.example.core_1.0.0.Final.jar",
+				((Element) properties.item(2)).getAttribute("value"));
+		assertEquals("download.checksum.sha-256", ((Element) properties.item(3)).getAttribute("name"));
+		// no p2 stats without their URL
+		Element repoProperties = (Element) streamed.getElementsByTagName("properties").item(0);
+		assertEquals("2", repoProperties.getAttribute("size"));
+	}
+
+	/**
+	 * The DOM based implementation GenerateRepositoryFacadeMojo.addP2Stats used
+	 * to have
+	 */
+	private static byte[] domRewrite(InputStream in) throws Exception {
+		Document contentDoc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+		Element repoElement = (Element) contentDoc.getElementsByTagName("repository").item(0);
+		Element repoProperties = (Element) contentDoc.getElementsByTagName("properties").item(0);
+		int newRepoPropertiesSize = Integer.parseInt(repoProperties.getAttribute("size")) + 1;
+		repoProperties.setAttribute("size", Integer.toString(newRepoPropertiesSize));
+		Element p2statsElement = contentDoc.createElement("property");
+		p2statsElement.setAttribute("name", "p2.statsURI");
+		p2statsElement.setAttribute("value", P2_STATS_URL);
+		repoProperties.appendChild(p2statsElement);
+		NodeList artifacts = ((Element) repoElement.getElementsByTagName("artifacts").item(0))
+				.getElementsByTagName("artifact");
+		for (int i = 0; i < artifacts.getLength(); i++) {
+			Element currentArtifact = (Element) artifacts.item(i);
+			if (currentArtifact.getAttribute("classifier").equals("org.eclipse.update.feature")) {
+				String iu = currentArtifact.getAttribute("id");
+				Element artifactProperties = (Element) currentArtifact.getElementsByTagName("properties").item(0);
+				int newArtifactPropertiesSize = Integer.parseInt(artifactProperties.getAttribute("size")) + 1;
+				artifactProperties.setAttribute("size", Integer.toString(newArtifactPropertiesSize));
+				Element statsElement = contentDoc.createElement("property");
+				statsElement.setAttribute("name", "download.stats");
+				statsElement.setAttribute("value", iu);
+				artifactProperties.appendChild(statsElement);
+			}
+		}
+		Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+		transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		transformer.transform(new DOMSource(contentDoc), new StreamResult(out));
+		return out.toByteArray();
+	}
+
+	private static Document parse(InputStream in) throws Exception {
+		Document res = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+		removeWhitespace(res.getDocumentElement());
+		return res;
+	}
+
+	// indentation differs between the DOM serializer and the streaming writer
+	private static void removeWhitespace(Node node) {
+		Node child = node.getFirstChild();
+		while (child != null) {
+			Node next = child.getNextSibling();
+			if (child.getNodeType() == Node.TEXT_NODE && child.getNodeValue().trim().isEmpty()) {
+				node.removeChild(child);
+			} else {
+				removeWhitespace(child);
+			}
+			child = next;
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class BuildInfoCacheTest {
+
+	private static final String BODY = "{\"revision\" : {\"HEAD\" : \"1111\"}}";
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private HttpServer server;
+	private URL url;
+	private final AtomicInteger fullResponses = new AtomicInteger();
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+		url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/repo/buildinfo.json");
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+			return;
+		}
+		fullResponses.incrementAndGet();
+		byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("ETag", "\"v1\"");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	@Test
+	public void testRevalidation() throws Exception {
+		BuildInfoCache cache = new BuildInfoCache(tmp.getRoot(), false);
+		assertEquals(BODY, read(cache));
+		assertEquals(BODY, read(cache));
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getRevalidations());
+		assertEquals(1, fullResponses.get());
+
+		BuildInfoCache offline = new BuildInfoCache(tmp.getRoot(), true);
+		server.stop(0);
+		assertEquals(BODY, read(offline));
+		assertEquals(1, offline.getHits());
+	}
+
+	@Test
+	public void testAbandonedReadIsNotCached() throws Exception {
+		BuildInfoCache cache = new BuildInfoCache(tmp.getRoot(), false);
+		try (InputStream in = cache.open(url, 2000)) {
+			assertEquals('{', in.read());
+		}
+		assertEquals(0, tmp.getRoot().list().length);
+		assertEquals(0, cache.getMisses());
+
+		assertEquals(BODY, read(cache));
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, tmp.getRoot().list().length);
+	}
+
+	@Test
+	public void testReplacedBodyIsLeftToEviction() throws Exception {
+		BuildInfoCache cache = new BuildInfoCache(tmp.getRoot(), false, TimeUnit.DAYS.toMillis(1));
+		assertEquals(BODY, read(cache));
+		// the upstream file changed since: the entry is replaced
+		File metadata = tmp.getRoot().listFiles((dir, name) -> name.endsWith(".properties"))[0];
+		Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(metadata)) {
+			properties.load(in);
+		}
+		File previousBody = new File(tmp.getRoot(), properties.getProperty("body"));
+		properties.setProperty("ETag", "\"v0\"");
+		try (OutputStream out = new FileOutputStream(metadata)) {
+			properties.store(out, null);
+		}
+		assertEquals(BODY, read(cache));
+		assertEquals(2, cache.getMisses());
+		assertTrue(previousBody.isFile());
+
+		previousBody.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2));
+		assertEquals(1, cache.evict());
+		assertFalse(previousBody.exists());
+		assertEquals(BODY, read(cache));
+		assertEquals(1, cache.getRevalidations());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		BuildInfoCache cache = new BuildInfoCache(tmp.getRoot(), false, TimeUnit.DAYS.toMillis(1));
+		assertEquals(BODY, read(cache));
+		// the metadata and the body it names
+		assertEquals(2, tmp.getRoot().list().length);
+		File leftover = tmp.newFile("leftover.json.tmp");
+		assertEquals(0, cache.evict());
+
+		long old = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2);
+		for (File file : tmp.getRoot().listFiles()) {
+			file.setLastModified(old);
+		}
+		// using the entry keeps it
+		assertEquals(BODY, read(cache));
+		assertEquals(1, cache.evict());
+		assertFalse(leftover.exists());
+		assertEquals(2, tmp.getRoot().list().length);
+
+		for (File file : tmp.getRoot().listFiles()) {
+			file.setLastModified(old);
+		}
+		assertEquals(2, cache.evict());
+		assertEquals(0, tmp.getRoot().list().length);
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void testOfflineWithoutCopy() throws Exception {
+		read(new BuildInfoCache(tmp.getRoot(), true));
+	}
+
+	private String read(BuildInfoCache cache) throws IOException {
+		try (InputStream in = cache.open(url, 2000)) {
+			return IOUtils.toString(in, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+
+public class BuildInfoWriterTest {
+
+	private static final String UPSTREAM = "{\"timestamp\":1700000000000,\"revision\":{\"HEAD\":\"abc\","
+			+ "\"currentBranch\":\"main\",\"knownReferences\":[{\"name\":\"origin\",\"url\":\"git://x/y.git\","
+			+ "\"ref\":\"main\"},{\"name\":\"fork\",\"ref\":\"f\"}]},\"properties\":{\"os.name\":\"Linux\","
+			+ "\"java.version\":\"17\"},\"single\":{\"only\":{\"a\":1,\"b\":[true,null,2.50]}},"
+			+ "\"escapes\":\"tab\\t quote\\\" slash\\/ nl\\n ctl\\u001f \\u00e9\",\"empty\":{},\"none\":[],"
+			+ "\"upstream\":{\"http://a\":{\"timestamp\":1},\"http://b\":\"Build info file not accessible\"}}";
+
+	@Test
+	public void testValueMatchesModelNode() throws IOException {
+		ModelNode node = ModelNode.fromJSONString(UPSTREAM);
+		node.get("revision", "knownReferences").add("plain");
+		node.get("key \"with\" \\ quotes").set(42);
+		StringWriter out = new StringWriter();
+		new BuildInfoWriter(out).value(node);
+		assertEquals(node.toJSONString(false), out.toString());
+	}
+
+	@Test
+	public void testNameEscapes() throws IOException {
+		String name = "key with\ta tab,\na new line and \u0001";
+		StringWriter out = new StringWriter();
+		BuildInfoWriter json = new BuildInfoWriter(out);
+		json.beginObject(1);
+		json.name(name);
+		json.literal("42");
+		json.endObject();
+		// unlike ModelNode, which writes control characters of names as is
+		assertEquals("{\"key with\\ta tab,\\na new line and \\u0001\" : 42}", out.toString());
+		assertEquals(42, ModelNode.fromJSONString(out.toString()).get(name).asInt());
+	}
+
+	@Test
+	public void testCopyMatchesModelNode() throws IOException {
+		ModelNode expected = ModelNode.fromJSONString(UPSTREAM);
+		expected.remove("upstream");
+		StringWriter out = new StringWriter();
+		new BuildInfoWriter(out).copy(() -> new StringReader(UPSTREAM), JsonProjection.allBut("upstream"));
+		assertEquals(expected.toJSONString(false), out.toString());
+	}
+
+	@Test
+	public void testCopyNested() throws IOException {
+		ModelNode upstream = ModelNode.fromJSONString(UPSTREAM);
+		ModelNode expected = new ModelNode();
+		expected.get("timestamp").set(1L);
+		ModelNode stripped = upstream.clone();
+		stripped.remove("upstream");
+		expected.get("upstream", "http://one").set(stripped);
+
+		StringWriter out = new StringWriter();
+		BuildInfoWriter json = new BuildInfoWriter(out);
+		json.beginObject(2);
+		json.name("timestamp");
+		json.value(new ModelNode(1L));
+		json.name("upstream");
+		json.beginObject(1);
+		json.name("http://one");
+		json.copy(() -> new StringReader(upstream.toJSONString(false)), JsonProjection.allBut("upstream"));
+		json.endObject();
+		json.endObject();
+		assertEquals(expected.toJSONString(false), out.toString());
+	}
+
+	@Test
+	public void testProjection() throws IOException {
+		ModelNode upstream = ModelNode.fromJSONString(UPSTREAM);
+		ModelNode expected = new ModelNode();
+		expected.get("timestamp").set(upstream.get("timestamp"));
+		expected.get("revision", "HEAD").set(upstream.get("revision", "HEAD"));
+		expected.get("revision", "knownReferences").set(upstream.get("revision", "knownReferences"));
+		expected.get("single", "only", "b").set(upstream.get("single", "only", "b"));
+
+		StringWriter out = new StringWriter();
+		new BuildInfoWriter(out).copy(() -> new StringReader(UPSTREAM),
+				JsonProjection.of(Arrays.asList("revision.HEAD", "timestamp", "properties.BUILD_ALIAS",
+						"revision.knownReferences", "single.only.b", "single.only.b.ignored", "escapes.none")));
+		assertEquals(expected.toJSONString(false), out.toString());
+	}
+
+	@Test
+	public void testProjectionOfArrayElements() throws IOException {
+		// the second reference has no url: it is left out
+		ModelNode reference = new ModelNode();
+		reference.get("url").set("git://x/y.git");
+		ModelNode expected = new ModelNode();
+		expected.get("revision", "knownReferences").set(Arrays.asList(reference));
+
+		StringWriter out = new StringWriter();
+		new BuildInfoWriter(out).copy(() -> new StringReader(UPSTREAM),
+				JsonProjection.of(Arrays.asList("revision.knownReferences.url")));
+		assertEquals(expected.toJSONString(false), out.toString());
+	}
+
+	@Test
+	public void testSizeOfCopy() throws IOException {
+		String upstream = UPSTREAM.replace("\"empty\"", "\"\ud83d\ude00 \\u0001\"");
+		for (JsonProjection projection : Arrays.asList(JsonProjection.allBut("upstream"),
+				JsonProjection.of(Arrays.asList("revision.knownReferences.url", "single.only.b", "escapes")),
+				JsonProjection.of(Arrays.asList("timestamp")))) {
+			for (int depth = 0; depth < 3; depth++) {
+				StringWriter out = new StringWriter();
+				BuildInfoWriter json = new BuildInfoWriter(out);
+				for (int i = 0; i < depth; i++) {
+					json.beginObject(2);
+					json.name("timestamp");
+					json.literal("1");
+					json.name("upstream");
+				}
+				int before = out.toString().getBytes(StandardCharsets.UTF_8).length;
+				BuildInfoWriter.Measure measure = BuildInfoWriter.measure(() -> new StringReader(upstream), projection);
+				long size = json.sizeOfCopy(measure);
+				json.copy(() -> new StringReader(upstream), measure);
+				assertEquals(out.toString().getBytes(StandardCharsets.UTF_8).length - before, size);
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testCopyRejectsNonObject() throws IOException {
+		new BuildInfoWriter(new StringWriter()).copy(() -> new StringReader("<html/>"),
+				JsonProjection.allBut("upstream"));
+	}
+}
@@ -0,0 +1,111 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+public class ContentXmlRewriterTest {
+
+	private static final String CONTENT_XML = "/p2-repository/content.xml";
+
+	@Test
+	public void testUnchangedContentIsCopiedAsIs() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ContentXmlRewriter(null, true, false).rewrite(() -> getClass().getResourceAsStream(CONTENT_XML), out);
+		try (InputStream expected = getClass().getResourceAsStream(CONTENT_XML)) {
+			assertArrayEquals(IOUtils.toByteArray(expected), out.toByteArray());
+		}
+	}
+
+	@Test
+	public void testRemoveDefaultCategoryAndReplaceReferences() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ContentXmlRewriter(Arrays.asList("https://download.jboss.org/jbosstools/updates/"), true, true)
+				.rewrite(() -> getClass().getResourceAsStream(CONTENT_XML), out);
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(out.toByteArray()));
+
+		Element units = (Element) doc.getElementsByTagName("units").item(0);
+		NodeList unitList = units.getElementsByTagName("unit");
+		assertEquals(4, unitList.getLength());
+		assertEquals("4", units.getAttribute("size"));
+		for (int i = 0; i < unitList.getLength(); i++) {
+			assertFalse(((Element) unitList.item(i)).getAttribute("id").contains(".Default"));
+		}
+
+		NodeList references = doc.getElementsByTagName("references");
+		assertEquals(1, references.getLength());
+		Element referencesElement = (Element) references.item(0);
+		assertEquals("2", referencesElement.getAttribute("size"));
+		NodeList repositories = referencesElement.getElementsByTagName("repository");
+		assertEquals(2, repositories.getLength());
+		for (int i = 0; i < repositories.getLength(); i++) {
+			assertEquals("https://download.jboss.org/jbosstools/updates/",
+					((Element) repositories.item(i)).getAttribute("uri"));
+		}
+	}
+
+	@Test
+	public void testEmptyAssociateSitesRemovesReferences() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ContentXmlRewriter(Collections.emptyList(), true, false)
+				.rewrite(() -> getClass().getResourceAsStream(CONTENT_XML), out);
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(0, doc.getElementsByTagName("references").getLength());
+		assertEquals(5, doc.getElementsByTagName("unit").getLength());
+	}
+
+	@Test
+	public void testUnitFilters() throws Exception {
+		// the feature listed by the "JBoss Tools Core" category, and the extra
+		// feature by its id
+		Set<String> ids = filterUnitIds(new UnitFilter(null, null, null, "JBoss Tools Core"),
+				new UnitFilter(".*\\.extra\\..*", null, null, null));
+		assertEquals(new HashSet<>(Arrays.asList("jbosstools.example.Default", "jbosstools.example.core",
+				"org.jboss.tools.example.core")), ids);
+
+		// property value, and a filter without criteria matching nothing
+		ids = filterUnitIds(new UnitFilter(null, "org.eclipse.equinox.p2.provider", "JBoss.*", null),
+				new UnitFilter());
+		assertEquals(4, ids.size());
+		assertFalse(ids.contains("org.jboss.tools.example.feature.feature.group"));
+
+		// all criteria of a filter must match
+		ids = filterUnitIds(new UnitFilter(".*\\.extra\\..*", null, null, "JBoss Tools Core"));
+		assertEquals(5, ids.size());
+	}
+
+	private Set<String> filterUnitIds(UnitFilter... filters) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ContentXmlRewriter rewriter = new ContentXmlRewriter(null, true, Arrays.asList(filters));
+		rewriter.rewrite(() -> getClass().getResourceAsStream(CONTENT_XML), out);
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(out.toByteArray()));
+		Element units = (Element) doc.getElementsByTagName("units").item(0);
+		NodeList unitList = units.getElementsByTagName("unit");
+		assertEquals(Integer.toString(unitList.getLength()), units.getAttribute("size"));
+		assertEquals(5 - unitList.getLength(), rewriter.getRemovedUnits().size());
+		Set<String> res = new HashSet<>();
+		for (int i = 0; i < unitList.getLength(); i++) {
+			res.add(((Element) unitList.item(i)).getAttribute("id"));
+		}
+		return res;
+	}
+}
@@ -0,0 +1,96 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DirectorySyncTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testSkipsUpToDateFiles() throws Exception {
+		File source = tmp.newFolder("templates");
+		write(new File(source, "index.html"), "<html/>");
+		write(new File(source, "web/site.css"), "body {}");
+		write(new File(source, "web/images/screenshot.png"), "not really a png");
+		Path target = new File(tmp.getRoot(), "repository").toPath();
+
+		DirectorySync sync = new DirectorySync(DirectorySync.Check.sizeAndTime, false, 3);
+		assertEquals(3, sync.sync(source.toPath(), target).getCopied());
+		assertEquals("body {}", read(target.resolve("web/site.css")));
+		assertEquals(3, sync.sync(source.toPath(), target).getSkipped());
+
+		write(new File(source, "web/site.css"), "body { color: red }");
+		DirectorySync.Result result = sync.sync(source.toPath(), target);
+		assertEquals(1, result.getCopied());
+		assertEquals(2, result.getSkipped());
+		assertEquals("body { color: red }", read(target.resolve("web/site.css")));
+
+		// same size and content, other time: only equal by content
+		Files.setLastModifiedTime(source.toPath().resolve("index.html"), FileTime.fromMillis(0));
+		assertEquals(3, new DirectorySync(DirectorySync.Check.content, false, 1).sync(source.toPath(), target)
+				.getSkipped());
+		assertEquals(1, sync.sync(source.toPath(), target).getCopied());
+		assertEquals(3, new DirectorySync(DirectorySync.Check.always, false, 1).sync(source.toPath(), target)
+				.getCopied());
+	}
+
+	@Test
+	public void testHardLinks() throws Exception {
+		File source = tmp.newFolder("templates");
+		write(new File(source, "web/video.mp4"), "not really a video");
+		File single = tmp.newFile("README.txt");
+		Path target = new File(tmp.getRoot(), "repository").toPath();
+
+		DirectorySync sync = new DirectorySync(DirectorySync.Check.sizeAndTime, true, 2);
+		DirectorySync.Result result = sync.sync(source.toPath(), target);
+		assertEquals(1, result.getLinked() + result.getCopied());
+		sync.sync(single.toPath(), target.resolve("README.txt"));
+		assertTrue(Files.isRegularFile(target.resolve("README.txt")));
+		if (result.getLinked() == 1) {
+			assertTrue(Files.isSameFile(source.toPath().resolve("web/video.mp4"), target.resolve("web/video.mp4")));
+		}
+		assertEquals(1, sync.sync(source.toPath(), target).getSkipped());
+	}
+
+	@Test
+	public void testLinkedFilesAreReplaced() throws Exception {
+		File source = tmp.newFolder("templates");
+		write(new File(source, "site.properties"), "source");
+		Path target = new File(tmp.getRoot(), "repository").toPath();
+		new DirectorySync(DirectorySync.Check.sizeAndTime, true, 1).sync(source.toPath(), target);
+
+		try (ReplacingOutputStream out = new ReplacingOutputStream(target.resolve("site.properties").toFile())) {
+			out.write("abandoned".getBytes(StandardCharsets.UTF_8));
+		}
+		assertEquals("source", read(target.resolve("site.properties")));
+		ReplacingOutputStream.write(target.resolve("site.properties").toFile(),
+				"generated".getBytes(StandardCharsets.UTF_8));
+		assertEquals("generated", read(target.resolve("site.properties")));
+		assertEquals("source", read(source.toPath().resolve("site.properties")));
+		try (Stream<Path> files = Files.list(target)) {
+			assertEquals(1, files.count());
+		}
+	}
+
+	private static void write(File file, String content) throws Exception {
+		FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+	}
+
+	private static String read(Path file) throws Exception {
+		return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+	}
+}
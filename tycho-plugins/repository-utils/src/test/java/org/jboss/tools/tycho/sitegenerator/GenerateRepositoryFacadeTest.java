@@ -3,7 +3,12 @@ package org.jboss.tools.tycho.sitegenerator;
 import static org.mockito.Mockito.mock;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.logging.Log;
@@ -65,4 +70,58 @@ public class GenerateRepositoryFacadeTest extends AbstractTychoMojoTestCase {
 			assertTrue(css.isFile());
 		}
 	}
-}
\ No newline at end of file
+
+	public void testIncrementalSiteChange() throws Exception {
+		File basedir = getBasedir("projects/generate-repository-facade-incremental");
+		File index = new File(basedir, "target/repository/index.html");
+		index.getParentFile().mkdirs();
+
+		runIncremental(basedir, "First");
+		String first = new String(Files.readAllBytes(index.toPath()), StandardCharsets.UTF_8);
+		assertTrue(first.contains("First"));
+
+		// only a symbol changes: "templates" is skipped, "site" runs again
+		runIncremental(basedir, "Second");
+		String second = new String(Files.readAllBytes(index.toPath()), StandardCharsets.UTF_8);
+		assertTrue(second.contains("Second"));
+		assertFalse(second.contains("First"));
+	}
+
+	public void testIncrementalRestoresWebResources() throws Exception {
+		File basedir = getBasedir("projects/generate-repository-facade-incremental");
+		File resources = new File(basedir, "target/web-resources/docs");
+		resources.mkdirs();
+		Files.write(new File(resources, "readme.txt").toPath(), "docs".getBytes(StandardCharsets.UTF_8));
+		File synced = new File(basedir, "target/repository/docs/readme.txt");
+
+		runIncremental(basedir, "First", Collections.singletonList(resources));
+		assertTrue(synced.isFile());
+
+		// the synced file is gone from the repository only: "templates" runs again
+		synced.delete();
+		runIncremental(basedir, "First", Collections.singletonList(resources));
+		assertTrue(synced.isFile());
+	}
+
+	private void runIncremental(File basedir, String siteName) throws Exception {
+		runIncremental(basedir, siteName, null);
+	}
+
+	private void runIncremental(File basedir, String siteName, List<File> webResources) throws Exception {
+		List<MavenProject> projects = getSortedProjects(basedir);
+		MavenProject project = projects.get(0);
+		MavenSession session = newMavenSession(project, projects);
+		GenerateRepositoryFacadeMojo facadeMojo = (GenerateRepositoryFacadeMojo) lookupMojoWithDefaultConfiguration(
+				project, session, "generate-repository-facade");
+		setVariableValueToObject(facadeMojo, "project", project);
+		setVariableValueToObject(facadeMojo, "session", session);
+		setVariableValueToObject(facadeMojo, "incremental", true);
+		setVariableValueToObject(facadeMojo, "skipBuildInfo", true);
+		Map<String, String> symbols = new HashMap<>();
+		symbols.put("update.site.name", siteName);
+		setVariableValueToObject(facadeMojo, "symbols", symbols);
+		setVariableValueToObject(facadeMojo, "additionalWebResources", webResources);
+		facadeMojo.setLog(mock(Log.class));
+		facadeMojo.execute();
+	}
+}
@@ -0,0 +1,85 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.jboss.dmr.ModelNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GitRevisionsTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testRemoteBranchesAtHead() throws Exception {
+		File root = tmp.newFolder("repo");
+		ObjectId head;
+		try (Git git = Git.init().setDirectory(root).setInitialBranch("main").call()) {
+			head = git.commit().setMessage("first").setAllowEmpty(true).setSign(false).call().getId();
+			ObjectId older = head;
+			head = git.commit().setMessage("second").setAllowEmpty(true).setSign(false).call().getId();
+			StoredConfig config = git.getRepository().getConfig();
+			config.setString("remote", "origin", "url", "https://github.com/jbosstools/jbosstools-base.git");
+			config.save();
+			updateRef(git, "refs/remotes/origin/main", head);
+			updateRef(git, "refs/remotes/fork/feature/x", head);
+			updateRef(git, "refs/remotes/origin/old", older);
+			updateRef(git, "refs/tags/v1", head);
+		}
+
+		ModelNode revision = GitRevisions.revisionObject(null, root);
+		assertEquals(head.getName(), revision.get("HEAD").asString());
+		assertEquals("refs/heads/main", revision.get("currentBranch").asString());
+		assertEquals(2, revision.get("knownReferences").asList().size());
+		for (ModelNode reference : revision.get("knownReferences").asList()) {
+			if ("origin".equals(reference.get("name").asString())) {
+				assertEquals("main", reference.get("ref").asString());
+				assertEquals("https://github.com/jbosstools/jbosstools-base.git", reference.get("url").asString());
+			} else {
+				assertEquals("fork", reference.get("name").asString());
+				assertEquals("feature/x", reference.get("ref").asString());
+			}
+		}
+	}
+
+	@Test
+	public void testCachedInSession() throws Exception {
+		File root = tmp.newFolder("repo");
+		try (Git git = Git.init().setDirectory(root).call()) {
+			git.commit().setMessage("first").setAllowEmpty(true).setSign(false).call();
+		}
+		MavenSession session = mock(MavenSession.class);
+		DefaultRepositorySystemSession repositorySession = new DefaultRepositorySystemSession();
+		when(session.getRepositorySession()).thenReturn(repositorySession);
+
+		ModelNode first = GitRevisions.revisionObject(session, root);
+		first.get("HEAD").set("modified by the caller");
+		String key = GitRevisions.class.getName() + ':' + root.getCanonicalPath();
+		assertNotNull(repositorySession.getData().get(key));
+
+		// once cached, the Git repository is not read again
+		tmp.delete();
+		ModelNode second = GitRevisions.revisionObject(session, root);
+		assertEquals(((ModelNode) repositorySession.getData().get(key)).get("HEAD"), second.get("HEAD"));
+		assertEquals(40, second.get("HEAD").asString().length());
+	}
+
+	private static void updateRef(Git git, String name, ObjectId id) throws Exception {
+		RefUpdate update = git.getRepository().updateRef(name);
+		update.setNewObjectId(id);
+		update.forceUpdate();
+	}
+}
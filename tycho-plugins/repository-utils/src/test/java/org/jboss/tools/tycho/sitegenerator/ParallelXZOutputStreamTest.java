@@ -0,0 +1,43 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.tukaani.xz.XZInputStream;
+
+public class ParallelXZOutputStreamTest {
+
+	@Test
+	public void testMultipleBlocksDecompressAsOne() throws Exception {
+		StringBuilder xml = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			xml.append("    <unit id='org.jboss.tools.example").append(i).append("' version='1.0.0.Final'/>\n");
+		}
+		byte[] data = xml.toString().getBytes(StandardCharsets.UTF_8);
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (ParallelXZOutputStream out = new ParallelXZOutputStream(compressed, 1, 64 * 1024, 4)) {
+			// uneven writes, so that blocks are filled from several calls
+			for (int off = 0; off < data.length; off += 1000) {
+				out.write(data, off, Math.min(1000, data.length - off));
+			}
+		}
+		try (XZInputStream in = new XZInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+			assertArrayEquals(data, IOUtils.toByteArray(in));
+		}
+	}
+
+	@Test
+	public void testEmptyInput() throws Exception {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		new ParallelXZOutputStream(compressed, 6, 1024 * 1024, 2).close();
+		try (XZInputStream in = new XZInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+			assertArrayEquals(new byte[0], IOUtils.toByteArray(in));
+		}
+	}
+}
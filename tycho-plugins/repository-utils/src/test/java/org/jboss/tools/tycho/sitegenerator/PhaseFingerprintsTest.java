@@ -0,0 +1,94 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.jboss.tools.tycho.sitegenerator.PhaseFingerprints.Fingerprint;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PhaseFingerprintsTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private final List<String> ran = new ArrayList<>();
+	private String setting = "a";
+
+	@Test
+	public void testSkipsUnchangedPhases() throws Exception {
+		File source = tmp.newFile("category.xml");
+		write(source, "<site/>");
+		File output = new File(tmp.getRoot(), "out.txt");
+
+		build(source, output);
+		assertEquals("[first, second]", ran.toString());
+
+		ran.clear();
+		assertEquals(2, build(source, output));
+		assertEquals("[]", ran.toString());
+
+		// an output changed behind our back: only its phase and the ones depending on it run
+		write(output, "changed");
+		ran.clear();
+		build(source, output);
+		assertEquals("[second]", ran.toString());
+
+		setting = "b";
+		ran.clear();
+		build(source, output);
+		assertEquals("[first, second]", ran.toString());
+
+		write(source, "<site></site>");
+		ran.clear();
+		build(source, output);
+		assertEquals("[second]", ran.toString());
+	}
+
+	@Test
+	public void testFingerprint() throws IOException {
+		File folder = tmp.newFolder("tree");
+		write(new File(folder, "a"), "1");
+		String before = new Fingerprint().tree(folder, true).get();
+		assertEquals(before, new Fingerprint().tree(folder, true).get());
+		write(new File(folder, "b"), "");
+		assertNotEquals(before, new Fingerprint().tree(folder, true).get());
+		// values are delimited
+		assertNotEquals(new Fingerprint().value("a", "bc").get(), new Fingerprint().value("ab", "c").get());
+	}
+
+	private int build(File source, File output) throws Exception {
+		PhaseFingerprints fingerprints = new PhaseFingerprints(new File(tmp.getRoot(), "fingerprints"),
+				new SystemStreamLog());
+		PhaseScheduler phases = new PhaseScheduler();
+		phases.add("first", fingerprints.check("first", () -> new Fingerprint().value("setting", setting),
+				() -> new Fingerprint(), () -> ran.add("first")));
+		phases.add("second",
+				fingerprints.check("second", () -> new Fingerprint().file(source), () -> new Fingerprint().file(output),
+						() -> {
+							ran.add("second");
+							try {
+								write(output, "generated");
+							} catch (IOException ex) {
+								throw new IllegalStateException(ex);
+							}
+						}, "first"),
+				"first");
+		phases.run(1);
+		fingerprints.record();
+		return fingerprints.getSkipped();
+	}
+
+	private static void write(File file, String content) throws IOException {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,78 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+
+public class PhaseMetricsTest {
+
+	@Test
+	public void testStepsAddUp() throws Exception {
+		PhaseMetrics metrics = new PhaseMetrics();
+		for (int i = 0; i < 2; i++) {
+			metrics.run("rewrite", () -> {
+				try (InputStream in = PhaseMetrics.current().countRead(new ByteArrayInputStream(new byte[100]));
+						OutputStream out = PhaseMetrics.current().countWritten(new ByteArrayOutputStream())) {
+					IOUtils.copy(in, out);
+					out.write(1);
+				} catch (Exception ex) {
+					throw new MojoExecutionException(ex.getMessage(), ex);
+				}
+			});
+		}
+		String nested = metrics.measure("outer", () -> metrics.measure("inner", () -> {
+			PhaseMetrics.current().written(5);
+			return "done";
+		}));
+		assertEquals("done", nested);
+		// outside of any step, nothing is counted
+		PhaseMetrics.current().read(1000);
+
+		ModelNode phases = metrics.toModelNode().get("phases");
+		assertEquals(200, phases.get("rewrite", "bytesRead").asLong());
+		assertEquals(202, phases.get("rewrite", "bytesWritten").asLong());
+		assertEquals(5, phases.get("inner", "bytesWritten").asLong());
+		assertEquals(0, phases.get("outer", "bytesWritten").asLong());
+		assertTrue(phases.get("rewrite", "millis").asLong() >= 0);
+		assertTrue(phases.get("rewrite").has("peakHeapDelta"));
+	}
+
+	@Test
+	public void testNestedTimeCountsOnce() throws Exception {
+		PhaseMetrics metrics = new PhaseMetrics();
+		metrics.run("outer", () -> metrics.run("inner", () -> sleep(300)));
+
+		ModelNode phases = metrics.toModelNode().get("phases");
+		assertTrue(phases.get("inner", "millis").asLong() >= 300);
+		assertTrue(phases.get("outer", "millis").asLong() < 150);
+	}
+
+	private static void sleep(long millis) throws MojoExecutionException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException ex) {
+			throw new MojoExecutionException(ex.getMessage(), ex);
+		}
+	}
+
+	@Test(expected = MojoExecutionException.class)
+	public void testFailureStillRecorded() throws Exception {
+		PhaseMetrics metrics = new PhaseMetrics();
+		try {
+			metrics.run("failing", () -> {
+				throw new MojoExecutionException("failed");
+			});
+		} finally {
+			assertTrue(metrics.toModelNode().get("phases").has("failing"));
+		}
+	}
+}
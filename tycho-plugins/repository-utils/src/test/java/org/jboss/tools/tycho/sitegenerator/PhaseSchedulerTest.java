@@ -0,0 +1,122 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Test;
+
+public class PhaseSchedulerTest {
+
+	@Test
+	public void testSingleThreadKeepsOrder() throws Exception {
+		List<String> log = new ArrayList<>();
+		PhaseScheduler phases = new PhaseScheduler();
+		phases.add("a", () -> log.add("a"));
+		phases.add("b", () -> log.add("b"));
+		phases.add("c", () -> log.add("c"), "a");
+		phases.add("zip", () -> log.add("zip"), phases.phaseNames());
+		phases.run(1);
+		assertEquals(Arrays.asList("a", "b", "c", "zip"), log);
+	}
+
+	@Test
+	public void testIndependentPhasesOverlap() throws Exception {
+		List<String> log = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch bothStarted = new CountDownLatch(2);
+		PhaseScheduler phases = new PhaseScheduler();
+		phases.add("a", () -> awaitOther(bothStarted, log, "a"));
+		phases.add("b", () -> awaitOther(bothStarted, log, "b"));
+		phases.add("c", () -> log.add("c"), "a");
+		phases.add("zip", () -> log.add("zip"), phases.phaseNames());
+		phases.run(3);
+		assertEquals(4, log.size());
+		assertTrue(log.indexOf("c") > log.indexOf("a"));
+		assertEquals("zip", log.get(3));
+	}
+
+	@Test
+	public void testFailureStopsDependents() throws Exception {
+		List<String> log = Collections.synchronizedList(new ArrayList<>());
+		PhaseScheduler phases = new PhaseScheduler();
+		phases.add("a", () -> {
+			throw new MojoFailureException("broken");
+		});
+		phases.add("b", () -> log.add("b"));
+		phases.add("zip", () -> log.add("zip"), phases.phaseNames());
+		try {
+			phases.run(2);
+			fail("Expected failure");
+		} catch (MojoFailureException ex) {
+			assertEquals("broken", ex.getMessage());
+		}
+		assertFalse(log.contains("zip"));
+	}
+
+	@Test
+	public void testFailureWaitsForRunningPhases() throws Exception {
+		List<String> log = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch started = new CountDownLatch(1);
+		PhaseScheduler phases = new PhaseScheduler();
+		phases.add("slow", () -> {
+			started.countDown();
+			try {
+				Thread.sleep(10000);
+			} catch (InterruptedException ex) {
+				// cancelled, still writing for a while
+				long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+				while (System.nanoTime() < end) {
+					Thread.yield();
+				}
+				log.add("slow");
+				throw new MojoExecutionException("cancelled");
+			}
+		});
+		phases.add("a", () -> {
+			try {
+				started.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			throw new MojoFailureException("broken");
+		});
+		try {
+			phases.run(2);
+			fail("Expected failure");
+		} catch (MojoFailureException ex) {
+			assertEquals("broken", ex.getMessage());
+			assertEquals(1, ex.getSuppressed().length);
+			assertEquals("cancelled", ex.getSuppressed()[0].getMessage());
+		}
+		assertEquals(Collections.singletonList("slow"), log);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownDependency() {
+		new PhaseScheduler().add("a", () -> {
+		}, "b");
+	}
+
+	private static void awaitOther(CountDownLatch latch, List<String> log, String name)
+			throws MojoExecutionException {
+		latch.countDown();
+		try {
+			if (!latch.await(10, TimeUnit.SECONDS)) {
+				throw new MojoExecutionException("Phases did not run concurrently");
+			}
+		} catch (InterruptedException ex) {
+			throw new MojoExecutionException(ex.getMessage(), ex);
+		}
+		log.add(name);
+	}
+}
@@ -0,0 +1,78 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PrecompressedFilesTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testCompressTextFiles() throws Exception {
+		File repository = tmp.newFolder("repository");
+		String html = repeat("<p>JBoss Tools</p>\n", 200);
+		FileUtils.writeStringToFile(new File(repository, "index.html"), html, StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(new File(repository, "web/site.css"), repeat("body {}\n", 200),
+				StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(new File(repository, "site.properties"), "small", StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(new File(repository, "plugins/a_1.0.0.jar"), repeat("jar", 1000),
+				StandardCharsets.UTF_8);
+		// left by a previous build
+		FileUtils.writeStringToFile(new File(repository, "site.properties.gz"), "stale", StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(new File(repository, "old.json.gz"), "stale", StandardCharsets.UTF_8);
+
+		PrecompressedFiles precompressed = new PrecompressedFiles(PrecompressedFiles.DEFAULT_EXTENSIONS, 1024);
+		assertEquals("[index.html.gz, web/site.css.gz]", precompressed.compress(repository).toString());
+		assertFalse(new File(repository, "site.properties.gz").exists());
+		assertFalse(new File(repository, "old.json.gz").exists());
+		assertFalse(new File(repository, "plugins/a_1.0.0.jar.gz").exists());
+		File sibling = new File(repository, "index.html.gz");
+		try (InputStream in = new GZIPInputStream(new FileInputStream(sibling))) {
+			assertEquals(html, IOUtils.toString(in, StandardCharsets.UTF_8));
+		}
+		assertEquals(new File(repository, "index.html").lastModified(), sibling.lastModified());
+		assertEquals("[index.html.gz, web/site.css.gz]", precompressed.listSiblings(repository).toString());
+	}
+
+	@Test
+	public void testExcludedFromArchive() throws Exception {
+		File repository = tmp.newFolder("repository");
+		FileUtils.writeStringToFile(new File(repository, "index.html"), repeat("<p/>", 500), StandardCharsets.UTF_8);
+		PrecompressedFiles precompressed = new PrecompressedFiles(Collections.singletonList("html"), 0);
+		precompressed.compress(repository);
+
+		File zip = new File(tmp.getRoot(), "repository.zip");
+		RepositoryArchiver archiver = new RepositoryArchiver(Collections.emptyList());
+		archiver.exclude(precompressed.listSiblings(repository));
+		archiver.createArchive(repository, zip);
+		try (ZipFile zipFile = new ZipFile(zip)) {
+			assertNotNull(zipFile.getEntry("index.html"));
+			assertNull(zipFile.getEntry("index.html.gz"));
+		}
+	}
+
+	private static String repeat(String text, int count) {
+		StringBuilder res = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			res.append(text);
+		}
+		return res.toString();
+	}
+}
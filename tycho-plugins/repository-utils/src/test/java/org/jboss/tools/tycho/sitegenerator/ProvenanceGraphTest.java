@@ -0,0 +1,133 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.jboss.dmr.ModelNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class ProvenanceGraphTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private HttpServer server;
+	private String base;
+	private final AtomicInteger requests = new AtomicInteger();
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+		base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		String path = exchange.getRequestURI().getPath();
+		String body = null;
+		if (path.equals("/a/buildinfo.json") || path.equals("/mirror-of-a/buildinfo.json")) {
+			body = buildInfo("a", "1", "b", "c");
+		} else if (path.equals("/b/buildinfo.json")) {
+			body = buildInfo("b", "2", "c", "d");
+		} else if (path.equals("/c/buildinfo.json")) {
+			body = buildInfo("c", "3");
+		} else if (path.equals("/d/buildinfo.json")) {
+			body = buildInfo("d", "4", "a");
+		}
+		if (body == null) {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			return;
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private String buildInfo(String project, String head, String... upstream) {
+		ModelNode res = new ModelNode();
+		res.get("timestamp").set(Long.parseLong(head));
+		res.get("revision", "HEAD").set(head);
+		ModelNode reference = new ModelNode();
+		reference.get("url").set("https://github.com/jbosstools/" + project + ".git");
+		res.get("revision", "knownReferences").add(reference);
+		for (String name : upstream) {
+			res.get("upstream", base + name).set(new ModelNode().set("revision", "whatever"));
+		}
+		return res.toJSONString(false);
+	}
+
+	@Test
+	public void testBuildsRecordedOnce() throws Exception {
+		ModelNode graph = walk(Arrays.asList(base + "a", base + "mirror-of-a", base + "missing"), 3);
+		assertEquals(3, graph.get("depth").asInt());
+		assertEquals("a@1", graph.get("upstream", base + "a").asString());
+		assertEquals("a@1", graph.get("upstream", base + "mirror-of-a").asString());
+		assertFalse(graph.get("upstream", base + "missing").isDefined());
+
+		ModelNode builds = graph.get("builds");
+		assertEquals(Arrays.asList("a@1", "b@2", "c@3", "d@4"), builds.keys().stream().sorted()
+				.collect(Collectors.toList()));
+		assertEquals("c@3", builds.get("b@2", "upstream", base + "c").asString());
+		// cycles end on builds already known
+		assertEquals("a@1", builds.get("d@4", "upstream", base + "a").asString());
+		assertEquals("2", builds.get("b@2", "buildinfo", "revision", "HEAD").asString());
+		assertFalse(builds.get("b@2", "buildinfo").has("upstream"));
+		// a, mirror-of-a, missing, then b and c, then d
+		assertEquals(6, requests.get());
+		// only the direct upstream files are left to the caller
+		assertEquals(2, tmp.getRoot().list().length);
+	}
+
+	@Test
+	public void testDepth() throws Exception {
+		ModelNode graph = walk(Arrays.asList(base + "b"), 1);
+		assertEquals(1, graph.get("depth").asInt());
+		assertEquals(1, graph.get("builds").keys().size());
+		// upstream builds beyond the depth are listed, without key
+		assertTrue(graph.get("builds", "b@2", "upstream").has(base + "c"));
+		assertFalse(graph.get("builds", "b@2", "upstream", base + "c").isDefined());
+		assertEquals(1, tmp.getRoot().list().length);
+	}
+
+	private ModelNode walk(List<String> repositoryUrls, int depth) throws Exception {
+		UpstreamBuildInfoFetcher fetcher = new UpstreamBuildInfoFetcher(new SystemStreamLog(), null, tmp.getRoot(),
+				null, 4, 2000, 10000, true);
+		List<UpstreamBuildInfoFetcher.Result> direct = fetcher.fetch(repositoryUrls);
+		ProvenanceGraph graph = new ProvenanceGraph(new SystemStreamLog(),
+				url -> url.replaceAll(".+/([^/]+).git", "$1"));
+		graph.walk(fetcher, direct, depth);
+		StringWriter out = new StringWriter();
+		graph.write(out, JsonProjection.allBut("upstream"));
+		graph.deleteFiles();
+		return ModelNode.fromJSONString(out.toString());
+	}
+}
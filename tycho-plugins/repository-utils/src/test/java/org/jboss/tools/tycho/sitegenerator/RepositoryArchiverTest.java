@@ -0,0 +1,136 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RepositoryArchiverTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testStoreCompressedEntries() throws Exception {
+		File repository = tmp.newFolder("repository");
+		FileUtils.writeStringToFile(new File(repository, "plugins/org.jboss.tools.example.core_1.0.0.Final.jar"),
+				"not really a jar", StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(new File(repository, "content.xml.xz"), "not really xz", StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(new File(repository, "index.html"), "<html></html>", StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(new File(repository, "web/site.css"), "body {}", StandardCharsets.UTF_8);
+
+		File zip = new File(tmp.getRoot(), "repository.zip");
+		new RepositoryArchiver(RepositoryArchiver.DEFAULT_STORED_EXTENSIONS).createArchive(repository, zip);
+
+		try (ZipFile zipFile = new ZipFile(zip)) {
+			assertEquals(ZipEntry.STORED, zipFile.getEntry("plugins/org.jboss.tools.example.core_1.0.0.Final.jar").getMethod());
+			assertEquals(ZipEntry.STORED, zipFile.getEntry("content.xml.xz").getMethod());
+			assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("index.html").getMethod());
+			assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("web/site.css").getMethod());
+			assertNotNull(zipFile.getEntry("plugins/"));
+			try (InputStream in = zipFile.getInputStream(zipFile.getEntry("content.xml.xz"))) {
+				assertEquals("not really xz", IOUtils.toString(in, StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	@Test
+	public void testParallelArchiveMatchesSequentialOne() throws Exception {
+		File repository = tmp.newFolder("repository");
+		for (int i = 0; i < 20; i++) {
+			FileUtils.writeStringToFile(new File(repository, "plugins/org.jboss.tools.example" + i + "_1.0.0.Final.jar"),
+					"not really a jar " + i, StandardCharsets.UTF_8);
+			FileUtils.writeStringToFile(new File(repository, "web/page" + i + ".html"),
+					"<html>" + i + "</html>", StandardCharsets.UTF_8);
+		}
+		FileUtils.writeStringToFile(new File(repository, "index.html"), "<html></html>", StandardCharsets.UTF_8);
+
+		File sequentialZip = new File(tmp.getRoot(), "sequential.zip");
+		new RepositoryArchiver(RepositoryArchiver.DEFAULT_STORED_EXTENSIONS, 1).createArchive(repository, sequentialZip);
+		File parallelZip = new File(tmp.getRoot(), "parallel.zip");
+		new RepositoryArchiver(RepositoryArchiver.DEFAULT_STORED_EXTENSIONS, 4).createArchive(repository, parallelZip);
+
+		Map<String, String> entries = entries(sequentialZip);
+		// 41 files and their 2 folders
+		assertEquals(43, entries.size());
+		assertEquals(entries, entries(parallelZip));
+	}
+
+	/**
+	 * Not a strict benchmark, but shows the gain of parallel compression on a
+	 * generated repository of a few thousand jars. Jars are deflated here too,
+	 * as that is where the CPU time goes. Only run on demand, with
+	 * -Drepository-utils.benchmark=true -Dtest=RepositoryArchiverTest
+	 */
+	@Test
+	public void testParallelArchiveBenchmark() throws Exception {
+		Assume.assumeTrue(Boolean.getBoolean("repository-utils.benchmark"));
+		File repository = tmp.newFolder("repository");
+		File plugins = new File(repository, "plugins");
+		plugins.mkdirs();
+		Random random = new Random(42);
+		for (int i = 0; i < 3000; i++) {
+			try (ZipOutputStream jar = new ZipOutputStream(
+					new FileOutputStream(new File(plugins, "org.jboss.tools.example" + i + "_1.0.0.Final.jar")))) {
+				jar.setLevel(0);
+				jar.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+				StringBuilder manifest = new StringBuilder("Manifest-Version: 1.0\n");
+				for (int j = 0; j < 200; j++) {
+					manifest.append("Export-Package: org.jboss.tools.example").append(i).append(".p")
+							.append(random.nextInt(1000)).append('\n');
+				}
+				jar.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+				jar.closeEntry();
+			}
+		}
+
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		File sequentialZip = new File(tmp.getRoot(), "sequential.zip");
+		long start = System.nanoTime();
+		new RepositoryArchiver(Collections.emptyList(), 1).createArchive(repository, sequentialZip);
+		long sequential = System.nanoTime() - start;
+		File parallelZip = new File(tmp.getRoot(), "parallel.zip");
+		start = System.nanoTime();
+		new RepositoryArchiver(Collections.emptyList(), threads).createArchive(repository, parallelZip);
+		long parallel = System.nanoTime() - start;
+		System.out.println("Zipped 3000 jars in " + sequential / 1000000 + "ms with 1 thread, " + parallel / 1000000
+				+ "ms with " + threads + " threads (x" + String.format("%.1f", (double) sequential / parallel) + ")");
+
+		assertEquals(entries(sequentialZip), entries(parallelZip));
+	}
+
+	/**
+	 * @return the method and content of every entry, by name
+	 */
+	private static Map<String, String> entries(File zip) throws Exception {
+		Map<String, String> res = new TreeMap<>();
+		try (ZipFile zipFile = new ZipFile(zip)) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				try (InputStream in = zipFile.getInputStream(entry)) {
+					res.put(entry.getName(), entry.getMethod() + ":" + IOUtils.toString(in, StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return res;
+	}
+}
@@ -0,0 +1,79 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jboss.tools.tycho.sitegenerator.RepositoryChecksums.Digests;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RepositoryChecksumsTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testParallelDigests() throws Exception {
+		File root = tmp.newFolder("repository");
+		new File(root, "plugins").mkdirs();
+		Random random = new Random(42);
+		List<Path> files = new ArrayList<>();
+		// empty, smaller and larger than the read buffer
+		for (int size : new int[] { 0, 100, 3 * 1024 * 1024 + 17 }) {
+			byte[] content = new byte[size];
+			random.nextBytes(content);
+			Path file = new File(root, "plugins/p" + size + ".jar").toPath();
+			Files.write(file, content);
+			files.add(file);
+		}
+
+		SortedMap<String, Digests> digests = new RepositoryChecksums(3).digest(root.toPath(), files);
+		assertEquals(3, digests.size());
+		for (Path file : files) {
+			Digests expected = RepositoryChecksums.digest(file);
+			Digests actual = digests.get("plugins/" + file.getFileName());
+			byte[] content = Files.readAllBytes(file);
+			assertEquals(content.length, actual.size);
+			assertEquals(hex("SHA-256", content), actual.sha256);
+			assertEquals(hex("SHA-512", content), actual.sha512);
+			assertEquals(expected.sha512, actual.sha512);
+		}
+		assertEquals(digests.get("plugins/p100.jar").sha256,
+				digests.get("plugins/p100.jar").toProperties().get("download.checksum.sha-256"));
+	}
+
+	@Test
+	public void testManifests() throws Exception {
+		File root = tmp.newFolder("repository");
+		Path file = new File(root, "index.html").toPath();
+		Files.write(file, "<html/>".getBytes(StandardCharsets.UTF_8));
+		SortedMap<String, Digests> digests;
+		try (Stream<Path> list = Files.list(root.toPath())) {
+			digests = new RepositoryChecksums(1).digest(root.toPath(), list.collect(Collectors.toList()));
+		}
+		RepositoryChecksums.writeManifests(root, digests);
+
+		List<String> sha256 = Files.readAllLines(new File(root, "SHA256SUMS").toPath());
+		assertEquals("[" + digests.get("index.html").sha256 + "  index.html]", sha256.toString());
+		List<String> sha512 = Files.readAllLines(new File(root, "SHA512SUMS").toPath());
+		assertEquals(128 + 2 + "index.html".length(), sha512.get(0).length());
+	}
+
+	private static String hex(String algorithm, byte[] content) throws Exception {
+		byte[] digest = MessageDigest.getInstance(algorithm).digest(content);
+		return String.format("%0" + (digest.length * 2) + "x", new BigInteger(1, digest));
+	}
+}
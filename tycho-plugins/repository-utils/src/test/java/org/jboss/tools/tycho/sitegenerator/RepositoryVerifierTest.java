@@ -0,0 +1,126 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RepositoryVerifierTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testValidRepository() throws Exception {
+		File repository = tmp.newFolder("repository");
+		byte[] bundle = write(repository, "plugins/org.example.core_1.0.0.jar", "bundle");
+		byte[] feature = write(repository, "features/org.example.feature_1.0.0.jar", "feature");
+		String xml = artifactsXml(artifact("osgi.bundle", "org.example.core", bundle, "download.md5", "MD5")
+				+ artifact("org.eclipse.update.feature", "org.example.feature", feature, "download.checksum.sha-256",
+						"SHA-256"));
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(new File(repository, "artifacts.jar")))) {
+			out.putNextEntry(new ZipEntry("artifacts.xml"));
+			out.write(xml.getBytes(StandardCharsets.UTF_8));
+		}
+
+		RepositoryVerifier.Report report = new RepositoryVerifier(2).verify(repository);
+		assertTrue(report.isValid());
+		assertEquals(2, report.getArtifacts());
+		assertEquals(bundle.length + feature.length, report.getBytes());
+		assertTrue(report.getExtra().isEmpty());
+	}
+
+	@Test
+	public void testMissingCorruptAndExtraFiles() throws Exception {
+		File repository = tmp.newFolder("repository");
+		byte[] bundle = write(repository, "plugins/org.example.core_1.0.0.jar", "bundle");
+		byte[] other = write(repository, "plugins/org.example.other_1.0.0.jar", "other");
+		byte[] feature = "feature".getBytes(StandardCharsets.UTF_8);
+		write(repository, "plugins/org.example.stale_0.9.0.jar", "stale");
+		String xml = artifactsXml(artifact("osgi.bundle", "org.example.core", bundle, "download.md5", "MD5")
+				+ artifact("osgi.bundle", "org.example.other", "tampered".getBytes(StandardCharsets.UTF_8),
+						"download.checksum.sha-256", "SHA-256")
+				+ artifact("org.eclipse.update.feature", "org.example.feature", feature, "download.md5", "MD5"));
+		try (OutputStream out = new XZCompressorOutputStream(
+				new FileOutputStream(new File(repository, "artifacts.xml.xz")))) {
+			out.write(xml.getBytes(StandardCharsets.UTF_8));
+		}
+
+		RepositoryVerifier.Report report = new RepositoryVerifier(4).verify(repository);
+		assertFalse(report.isValid());
+		assertEquals("[features/org.example.feature_1.0.0.jar]", report.getMissing().toString());
+		assertEquals(1, report.getCorrupt().size());
+		String corrupt = report.getCorrupt().iterator().next();
+		assertTrue(corrupt, corrupt.startsWith("plugins/org.example.other_1.0.0.jar (size " + other.length));
+		assertTrue(corrupt, corrupt.contains("download.checksum.sha-256"));
+		assertEquals("[plugins/org.example.stale_0.9.0.jar]", report.getExtra().toString());
+	}
+
+	@Test
+	public void testMoreArtifactsThanQueued() throws Exception {
+		File repository = tmp.newFolder("repository");
+		StringBuilder artifacts = new StringBuilder();
+		long bytes = 0;
+		for (int i = 0; i < 50; i++) {
+			byte[] bundle = write(repository, "plugins/org.example.b" + i + "_1.0.0.jar", "bundle " + i);
+			artifacts.append(artifact("osgi.bundle", "org.example.b" + i, bundle, "download.md5", "MD5"));
+			bytes += bundle.length;
+		}
+		write(repository, "artifacts.xml", artifactsXml(artifacts.toString()));
+
+		// the reading thread checks the artifacts the pool has no room for
+		RepositoryVerifier.Report report = new RepositoryVerifier(1).verify(repository);
+		assertTrue(report.isValid());
+		assertEquals(50, report.getArtifacts());
+		assertEquals(bytes, report.getBytes());
+	}
+
+	private static byte[] write(File repository, String path, String content) throws Exception {
+		File file = new File(repository, path);
+		file.getParentFile().mkdirs();
+		byte[] res = content.getBytes(StandardCharsets.UTF_8);
+		Files.write(file.toPath(), res);
+		return res;
+	}
+
+	private static String artifact(String classifier, String id, byte[] content, String checksumProperty,
+			String algorithm) throws Exception {
+		byte[] digest = MessageDigest.getInstance(algorithm).digest(content);
+		return "    <artifact classifier='" + classifier + "' id='" + id + "' version='1.0.0'>\n"
+				+ "      <properties size='2'>\n"
+				+ "        <property name='download.size' value='" + content.length + "'/>\n"
+				+ "        <property name='" + checksumProperty + "' value='"
+				+ String.format("%0" + (digest.length * 2) + "x", new BigInteger(1, digest)) + "'/>\n"
+				+ "      </properties>\n"
+				+ "      <repositoryProperties size='1'>\n"
+				+ "        <property name='download.size' value='0'/>\n"
+				+ "      </repositoryProperties>\n"
+				+ "    </artifact>\n";
+	}
+
+	private static String artifactsXml(String artifacts) {
+		return "<?xml version='1.0' encoding='UTF-8'?>\n"
+				+ "<?artifactRepository version='1.1.0'?>\n"
+				+ "<repository name='test' type='org.eclipse.equinox.p2.artifact.repository.simpleRepository' version='1'>\n"
+				+ "  <mappings size='2'>\n"
+				+ "    <rule filter='(&amp; (classifier=osgi.bundle))' output='${repoUrl}/plugins/${id}_${version}.jar'/>\n"
+				+ "    <rule filter='(&amp; (classifier=org.eclipse.update.feature))' output='${repoUrl}/features/${id}_${version}.jar'/>\n"
+				+ "  </mappings>\n"
+				+ "  <artifacts>\n" + artifacts + "  </artifacts>\n"
+				+ "</repository>\n";
+	}
+}
@@ -0,0 +1,46 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SymbolReplacerTest {
+
+	private static String replace(Map<String, String> symbols, String template) throws Exception {
+		StringWriter out = new StringWriter();
+		new SymbolReplacer(symbols).replace(new StringReader(template), out);
+		return out.toString();
+	}
+
+	@Test
+	public void testReplace() throws Exception {
+		Map<String, String> symbols = new HashMap<>();
+		symbols.put("${site.contents}", "<table/>");
+		symbols.put("update.site.name", "JBoss Tools");
+		symbols.put("unset", null);
+		assertEquals("<h1>JBoss Tools</h1><table/><p>JBoss Tools</p>",
+				replace(symbols, "<h1>${update.site.name}</h1>${site.contents}<p>${update.site.name}</p>"));
+	}
+
+	@Test
+	public void testUnknownAndIncompleteSymbols() throws Exception {
+		Map<String, String> symbols = new HashMap<>();
+		symbols.put("a", "A");
+		assertEquals("${unknown} ${unset} $a $AA ${a", replace(symbols, "${unknown} ${unset} $a $${a}${a} ${a"));
+		symbols.put("unset", null);
+		assertEquals("${unset}", replace(symbols, "${unset}"));
+	}
+
+	@Test
+	public void testValuesAreNotScanned() throws Exception {
+		Map<String, String> symbols = new HashMap<>();
+		symbols.put("a", "${b}");
+		symbols.put("b", "B");
+		assertEquals("${b}B", replace(symbols, "${a}${b}"));
+	}
+}
@@ -0,0 +1,118 @@
+package org.jboss.tools.tycho.sitegenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class UpstreamBuildInfoFetcherTest {
+
+	private static final String CHILD = "{\"timestamp\" : 1, \"revision\" : {\"HEAD\" : \"2222\",\n"
+			+ "  \"knownReferences\" : [{\"ref\" : \"origin\", \"url\" : \"https://github.com/jbosstools/jbosstools-base.git\"},"
+			+ " {\"url\" : \"other\"}], \"other\" : [1, {}]},\n \"upstream\" : {\"x\" : \"\\u00e9\\\"\"}}";
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private HttpServer server;
+	private String base;
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		String body = null;
+		if (path.equals("/direct/buildinfo.json")) {
+			body = "{\"revision\" : {\"HEAD\" : \"1111\"}}";
+		} else if (path.equals("/child/latest/all/repo/buildinfo.json")) {
+			body = CHILD;
+		} else if (path.startsWith("/slow/")) {
+			try {
+				Thread.sleep(5000);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			body = "{}";
+		}
+		if (body == null) {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			return;
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		} catch (IOException ex) {
+			// client gave up
+		}
+	}
+
+	@Test
+	public void testResultsInRepositoryOrder() throws Exception {
+		List<UpstreamBuildInfoFetcher.Result> results = new UpstreamBuildInfoFetcher(new SystemStreamLog(), null, tmp.getRoot(),
+				"latest/all/repo", 4, 2000, 10000, false)
+						.fetch(Arrays.asList(base + "missing", base + "child", base + "direct/"));
+		assertEquals(3, results.size());
+		assertEquals(base + "missing", results.get(0).repositoryUrl);
+		assertNull(results.get(0).file);
+		assertNotNull(results.get(0).error);
+		assertEquals("2222", results.get(1).head);
+		assertEquals("https://github.com/jbosstools/jbosstools-base.git", results.get(1).projectUrl);
+		assertEquals(CHILD, new String(Files.readAllBytes(results.get(1).file.toPath()), StandardCharsets.UTF_8));
+		assertEquals("1111", results.get(2).head);
+		assertNull(results.get(2).projectUrl);
+		assertEquals(2, tmp.getRoot().list().length);
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		long start = System.currentTimeMillis();
+		List<UpstreamBuildInfoFetcher.Result> results = new UpstreamBuildInfoFetcher(new SystemStreamLog(), null, tmp.getRoot(), null,
+				4, 300, 10000, false).fetch(Arrays.asList(base + "slow", base + "direct"));
+		assertNull(results.get(0).file);
+		assertEquals("1111", results.get(1).head);
+		assertTrue(System.currentTimeMillis() - start < 4000);
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		long start = System.currentTimeMillis();
+		List<UpstreamBuildInfoFetcher.Result> results = new UpstreamBuildInfoFetcher(new SystemStreamLog(), null, tmp.getRoot(), null,
+				4, 10000, 500, false).fetch(Arrays.asList(base + "slow", base + "slow/other"));
+		assertNull(results.get(0).file);
+		assertNull(results.get(1).file);
+		assertTrue(System.currentTimeMillis() - start < 4000);
+	}
+}
@@ -1,20 +1,41 @@
 package org.jboss.tools.tycho.sitegenerator;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
 
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.jboss.dmr.ModelNode;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class XsltTest {
 
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
 	@Test
 	public void testSiteProperties() throws Exception {
         InputStream siteXsl = GenerateRepositoryFacadeMojo.class.getResourceAsStream("/xslt/site.properties.xsl");
@@ -27,4 +48,74 @@ public class XsltTest {
         out.close();
 	}
 
+	@Test
+	public void testTemplatesCachedInSession() throws Exception {
+		MavenSession session = mock(MavenSession.class);
+		DefaultRepositorySystemSession repositorySession = new DefaultRepositorySystemSession();
+		when(session.getRepositorySession()).thenReturn(repositorySession);
+		String key = XsltTemplates.class.getName() + ':'
+				+ GenerateRepositoryFacadeMojo.class.getResource("/xslt/site.properties.xsl");
+
+		Transformer transformer = XsltTemplates.newTransformer(session, null, "/xslt/site.properties.xsl");
+		Templates templates = (Templates) repositorySession.getData().get(key);
+		assertNotNull(templates);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		transformer.transform(new StreamSource(new ByteArrayInputStream("<site/>".getBytes())), new StreamResult(out));
+
+		XsltTemplates.newTransformer(session, null, "/xslt/site.properties.xsl");
+		assertSame(templates, repositorySession.getData().get(key));
+	}
+
+	@Test
+	public void testSharedTreeFeedsBothStylesheets() throws Exception {
+		File category = tmp.newFile("category.xml");
+		Files.write(category.toPath(), ("<site><feature id='org.example.feature' version='1.0.0'>"
+				+ "<category name='example'/></feature><category-def name='example' label='Example'/></site>")
+						.getBytes(StandardCharsets.UTF_8));
+		Source tree = XsltTemplates.buildTree(category);
+
+		ByteArrayOutputStream properties = new ByteArrayOutputStream();
+		XsltTemplates.newTransformer(null, null, "/xslt/site.properties.xsl").transform(tree,
+				new StreamResult(properties));
+		ByteArrayOutputStream html = new ByteArrayOutputStream();
+		XsltTemplates.newTransformer(null, null, "/xslt/site.xsl").transform(tree, new StreamResult(html));
+
+		assertTrue(properties.toString(StandardCharsets.UTF_8).contains("org.example.feature"));
+		assertTrue(html.toString(StandardCharsets.UTF_8).contains("org.example.feature"));
+	}
+
+	@Test
+	public void testFeatureIndex() throws Exception {
+		File category = tmp.newFile("category.xml");
+		Files.write(category.toPath(), ("<site>"
+				+ "<feature url='features/org.example.b_1.0.0.jar' id='org.example.b' version='1.0.0'>"
+				+ "<category name='example'/><category name='other'/></feature>"
+				+ "<feature url='features/org.example.a_2.0.0.jar' id='org.example.a' version='2.0.0'>"
+				+ "<category name='example'/></feature>"
+				+ "<feature url='features/org.example.c_1.0.0.jar' id='org.example.c' version='1.0.0'/>"
+				+ "<category-def name='other' label='Other &quot;tools&quot; \\ misc'/>"
+				+ "<category-def name='example' label='Example'/></site>").getBytes(StandardCharsets.UTF_8));
+		Source tree = XsltTemplates.buildTree(category);
+
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		XsltTemplates.newTransformer(null, null, "/xslt/features.json.xsl").transform(tree, new StreamResult(json));
+		ModelNode index = ModelNode.fromJSONString(json.toString(StandardCharsets.UTF_8));
+		assertEquals(3, index.get("count").asInt());
+		List<ModelNode> categories = index.get("categories").asList();
+		assertEquals("example", categories.get(0).get("name").asString());
+		assertEquals("org.example.a", categories.get(0).get("features").get(0).get(0).asString());
+		assertEquals("features/org.example.b_1.0.0.jar", categories.get(0).get("features").get(1).get(2).asString());
+		assertEquals("Other \"tools\" \\ misc", categories.get(1).get("label").asString());
+		assertEquals(1, categories.get(1).get("features").asList().size());
+		assertEquals("org.example.c", index.get("uncategorized").get(0).get(0).asString());
+
+		// the page only refers to the index
+		ByteArrayOutputStream html = new ByteArrayOutputStream();
+		XsltTemplates.newTransformer(null, null, "/xslt/site-index.xsl").transform(tree, new StreamResult(html));
+		String page = html.toString(StandardCharsets.UTF_8);
+		assertTrue(page.contains("'features.json'"));
+		assertFalse(page.contains("org.example.a"));
+		assertTrue(page.contains("i < end"));
+	}
+
 }